@@ -0,0 +1,40 @@
+package com.asecapt.app.commons.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+public class CursorUtil {
+
+    /**
+     * Position of the last row of a page ordered by (timestamp DESC, id DESC)
+     */
+    public record Cursor(LocalDateTime timestamp, Integer id) {
+    }
+
+    /**
+     * Encode a keyset position as an opaque URL-safe cursor
+     */
+    public static String encode(LocalDateTime timestamp, Integer id) {
+        String raw = timestamp + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor produced by encode; null for a null/blank cursor
+     * @throws IllegalArgumentException when the cursor is malformed
+     */
+    public static Cursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new Cursor(LocalDateTime.parse(raw.substring(0, separator)), Integer.valueOf(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | StringIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
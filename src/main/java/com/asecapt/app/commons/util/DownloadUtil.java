@@ -0,0 +1,104 @@
+package com.asecapt.app.commons.util;
+
+import com.asecapt.app.users.application.exception.StorageFileNotFoundException;
+import com.asecapt.app.users.application.exception.StorageRangeNotSatisfiableException;
+import com.asecapt.app.users.domain.services.CertificateFileStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+public class DownloadUtil {
+
+    /**
+     * Resolve the Range header of a request into a single "bytes=start-end" range.
+     * Malformed or multi-range headers are ignored (the full object is served), as allowed by RFC 7233.
+     */
+    public static String resolveRange(HttpServletRequest request) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null || rangeHeader.isBlank()) {
+            return null;
+        }
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+            return ranges.size() == 1 ? HttpRange.toString(ranges) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Resolve the Range header as above, ignoring it when an If-Range validator does not match the current ETag
+     */
+    public static String resolveRange(HttpServletRequest request, String etag) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(etag)) {
+            return null;
+        }
+        return resolveRange(request);
+    }
+
+    /**
+     * Strong ETag of a stored certificate file: its ID and the last time the row changed
+     */
+    public static String certificateETag(Integer certificateId, LocalDateTime version) {
+        return "\"cert-" + certificateId + "-" + Long.toString(toEpochMillis(version), 36) + "\"";
+    }
+
+    /**
+     * Set Cache-Control and answer a conditional request (If-None-Match / If-Modified-Since) with 304.
+     * Must be called before the stored object is opened; when it returns true nothing else should be written.
+     */
+    public static boolean checkNotModified(HttpServletRequest request, HttpServletResponse response, String etag,
+                                           LocalDateTime lastModified, CacheControl cacheControl) {
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+        return new ServletWebRequest(request, response).checkNotModified(etag, toEpochMillis(lastModified));
+    }
+
+    private static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Stream a stored file to the servlet response, propagating length, type and range headers
+     */
+    public static void write(HttpServletResponse response, CertificateFileStream file, String contentDisposition) throws IOException {
+        response.setStatus(file.isPartial() ? HttpServletResponse.SC_PARTIAL_CONTENT : HttpServletResponse.SC_OK);
+        response.setContentType(file.getContentType() != null ? file.getContentType() : "application/octet-stream");
+        if (file.getContentLength() != null) {
+            response.setContentLengthLong(file.getContentLength());
+        }
+        if (file.isPartial()) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, file.getContentRange());
+        }
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, contentDisposition);
+
+        file.transferTo(response.getOutputStream());
+        response.flushBuffer();
+    }
+
+    /**
+     * Map a download failure to an HTTP status, unless the response has already started streaming
+     */
+    public static void sendError(HttpServletResponse response, Exception e) throws IOException {
+        if (response.isCommitted()) {
+            return;
+        }
+        if (e instanceof StorageRangeNotSatisfiableException) {
+            response.sendError(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+        } else if (e instanceof StorageFileNotFoundException) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+        } else {
+            response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.asecapt.app.commons.util;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+public class RequestUtil {
+
+    /**
+     * Resolve the client IP from X-Real-IP, which nginx overwrites, falling back to the connection's remote address.
+     * X-Forwarded-For is ignored: its first hop is whatever the client sent.
+     */
+    public static String clientIp(HttpServletRequest request) {
+        String realIp = request.getHeader("X-Real-IP");
+        if (realIp != null && !realIp.isBlank()) {
+            return realIp.trim();
+        }
+        return request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,50 @@
+package com.asecapt.app.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class CertificateExecutorConfig {
+
+    @Value("${app.certificates.executor.pool-size:8}")
+    private int poolSize;
+
+    @Value("${app.certificates.executor.queue-capacity:200}")
+    private int queueCapacity;
+
+    /**
+     * Bounded pool for certificate I/O (QR rendering, storage uploads/downloads).
+     * When saturated the submitting thread runs the task itself, which throttles callers instead of failing.
+     */
+    @Bean(name = "certificateTaskExecutor")
+    public ThreadPoolTaskExecutor certificateTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("certificate-io-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Coordinator threads for bulk certificate jobs; the per-certificate work is fanned out to certificateTaskExecutor
+     */
+    @Bean(name = "certificateBatchExecutor")
+    public ThreadPoolTaskExecutor certificateBatchExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(20);
+        executor.setThreadNamePrefix("certificate-batch-");
+        executor.initialize();
+        return executor;
+    }
+}
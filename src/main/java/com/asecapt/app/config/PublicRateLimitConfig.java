@@ -0,0 +1,30 @@
+package com.asecapt.app.config;
+
+import com.asecapt.app.users.infrastructure.security.PublicRateLimitInterceptor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Applies the public rate limiter to the unauthenticated certificate endpoints
+ */
+@Configuration
+public class PublicRateLimitConfig implements WebMvcConfigurer {
+
+    private final PublicRateLimitInterceptor publicRateLimitInterceptor;
+
+    @Value("${app.public-rate-limit.enabled:true}")
+    private boolean enabled;
+
+    public PublicRateLimitConfig(PublicRateLimitInterceptor publicRateLimitInterceptor) {
+        this.publicRateLimitInterceptor = publicRateLimitInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (enabled) {
+            registry.addInterceptor(publicRateLimitInterceptor).addPathPatterns("/api/public/certificate/**");
+        }
+    }
+}
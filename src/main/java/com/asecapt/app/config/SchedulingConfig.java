@@ -0,0 +1,12 @@
+package com.asecapt.app.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables @Scheduled background refreshes (certificate revocation set, etc.)
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
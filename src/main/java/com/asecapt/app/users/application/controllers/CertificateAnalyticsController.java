@@ -0,0 +1,83 @@
+package com.asecapt.app.users.application.controllers;
+
+import com.asecapt.app.users.application.dto.ScanCountDto;
+import com.asecapt.app.users.application.dto.ScanTotalDto;
+import com.asecapt.app.users.domain.entities.CertificateScanRollup;
+import com.asecapt.app.users.domain.entities.CertificateValidation;
+import com.asecapt.app.users.domain.services.CertificateScanAnalyticsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/certificates/analytics")
+@CrossOrigin(origins = "*")
+public class CertificateAnalyticsController {
+    
+    @Autowired
+    private CertificateScanAnalyticsService certificateScanAnalyticsService;
+    
+    /**
+     * Scan counts per hour or day and validation result, optionally for one certificate or program
+     */
+    @GetMapping("/scans")
+    public ResponseEntity<?> getScanSeries(
+            @RequestParam(value = "granularity", defaultValue = "day") String granularity,
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(value = "certificateId", required = false) Integer certificateId,
+            @RequestParam(value = "programId", required = false) Integer programId) {
+        
+        String bucket = granularity.trim().toUpperCase();
+        if (!CertificateScanRollup.HOUR.equals(bucket) && !CertificateScanRollup.DAY.equals(bucket)) {
+            return ResponseEntity.badRequest().body("granularity must be 'hour' or 'day'");
+        }
+        
+        List<ScanCountDto> series = certificateScanAnalyticsService.getScanSeries(bucket, from, to, certificateId, programId);
+        return ResponseEntity.ok(series);
+    }
+    
+    /**
+     * Most scanned certificates in a date range
+     */
+    @GetMapping("/top-certificates")
+    public ResponseEntity<List<ScanTotalDto>> getTopCertificates(
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        return ResponseEntity.ok(certificateScanAnalyticsService.getTopCertificates(from, to, limit));
+    }
+    
+    /**
+     * Scans per program in a date range
+     */
+    @GetMapping("/programs")
+    public ResponseEntity<List<ScanTotalDto>> getProgramTotals(
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return ResponseEntity.ok(certificateScanAnalyticsService.getProgramTotals(from, to));
+    }
+    
+    /**
+     * Raw validation log, newest first, paginated by keyset: pass nextCursor as beforeId until a page comes back empty
+     */
+    @GetMapping("/validations")
+    public ResponseEntity<Map<String, Object>> getValidationLog(
+            @RequestParam(value = "beforeId", required = false) Integer beforeId,
+            @RequestParam(value = "result", required = false) String result,
+            @RequestParam(value = "limit", defaultValue = "50") int limit) {
+        
+        List<CertificateValidation> validations = certificateScanAnalyticsService.getValidationLog(beforeId, result, limit);
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("items", validations);
+        response.put("nextCursor", validations.isEmpty() ? null : validations.get(validations.size() - 1).getId());
+        return ResponseEntity.ok(response);
+    }
+}
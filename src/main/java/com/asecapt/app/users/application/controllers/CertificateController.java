@@ -1,25 +1,51 @@
 package com.asecapt.app.users.application.controllers;
 
+import com.asecapt.app.commons.util.DownloadUtil;
+import com.asecapt.app.users.application.dto.CertificateArchiveRow;
+import com.asecapt.app.users.application.dto.CertificateListItemDto;
+import com.asecapt.app.users.application.dto.CursorPage;
+import com.asecapt.app.users.application.exception.BatchLimitExceededException;
 import com.asecapt.app.users.domain.entities.Certificate;
+import com.asecapt.app.users.domain.services.CertificateArchiveService;
+import com.asecapt.app.users.domain.services.CertificateBatchService;
+import com.asecapt.app.users.domain.services.CertificateFileStream;
 import com.asecapt.app.users.domain.services.CertificateService;
-import com.asecapt.app.users.domain.services.S3CertificateService;
+import com.asecapt.app.users.domain.services.CertificateStorage;
+import com.asecapt.app.users.domain.services.QRCodeMigrationService;
+import com.asecapt.app.users.domain.services.QRCodeService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.UrlResource;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.MalformedURLException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 @RestController
 @RequestMapping("/api/certificates")
@@ -30,7 +56,32 @@ public class CertificateController {
     private CertificateService certificateService;
     
     @Autowired
-    private S3CertificateService s3CertificateService;
+    private CertificateStorage certificateStorage;
+    
+    @Autowired
+    private CertificateBatchService certificateBatchService;
+    
+    @Autowired
+    private QRCodeService qrCodeService;
+    
+    @Autowired
+    private QRCodeMigrationService qrCodeMigrationService;
+    
+    @Autowired
+    private CertificateArchiveService certificateArchiveService;
+    
+    @Value("${app.certificates.http-cache.admin-download-max-age:0s}")
+    private Duration downloadCacheMaxAge;
+    
+    @Value("${app.certificates.batch.max-file-size:20MB}")
+    private DataSize batchMaxFileSize;
+    
+    @Value("${app.certificates.batch.max-total-size:1GB}")
+    private DataSize batchMaxTotalSize;
+    
+    private static final int MAX_BATCH_FILES = 1000;
+    private static final int MAX_ARCHIVE_ENTRIES = 2 * MAX_BATCH_FILES;
+    private static final Set<String> BATCH_EXTENSIONS = Set.of("pdf", "png", "jpg", "jpeg");
     
     /**
      * Upload and create certificate for an enrollment
@@ -74,6 +125,198 @@ public class CertificateController {
         }
     }
     
+    /**
+     * Start a bulk issuance job from a ZIP archive or a list of files named after the enrollment ID or student DNI
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> uploadCertificateBatch(
+            @RequestParam(value = "archive", required = false) MultipartFile archive,
+            @RequestParam(value = "files", required = false) List<MultipartFile> files,
+            @RequestParam(value = "mapBy", defaultValue = "enrollment") String mapBy,
+            @RequestParam(value = "programId", required = false) Integer programId,
+            @RequestParam(value = "issuedDate", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime issuedDate) {
+        
+        List<CertificateBatchService.BatchFile> batchFiles = new ArrayList<>();
+        Path spoolDirectory = null;
+        boolean submitted = false;
+        try {
+            CertificateBatchService.MapBy mapping = CertificateBatchService.MapBy.valueOf(mapBy.trim().toUpperCase());
+            
+            spoolDirectory = Files.createTempDirectory("certificate-batch-");
+            BatchLimits limits = new BatchLimits();
+            if (archive != null && !archive.isEmpty()) {
+                readArchive(archive, spoolDirectory, limits, batchFiles);
+            }
+            if (files != null) {
+                for (MultipartFile file : files) {
+                    if (!file.isEmpty()) {
+                        spoolUpload(file, spoolDirectory, limits, batchFiles);
+                    }
+                }
+            }
+            if (batchFiles.isEmpty()) {
+                return ResponseEntity.badRequest().body("No PDF or image files found in the request");
+            }
+            
+            CertificateBatchService.BatchJob job = certificateBatchService.submit(batchFiles, mapping, programId, issuedDate);
+            submitted = true;
+            System.out.println("Certificate batch " + job.getJobId() + " submitted with " + job.getTotal() + " files");
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("jobId", job.getJobId());
+            response.put("total", job.getTotal());
+            response.put("status", job.getStatus());
+            return ResponseEntity.accepted().body(response);
+            
+        } catch (BatchLimitExceededException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(e.getMessage());
+        } catch (CertificateBatchService.BatchRejectedException e) {
+            System.err.println("Certificate batch rejected: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "60")
+                    .body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("mapBy must be 'enrollment' or 'dni'");
+        } catch (RuntimeException e) {
+            System.err.println("Business error creating certificate batch: " + e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IOException e) {
+            System.err.println("IO error reading certificate batch: " + e.getMessage());
+            return ResponseEntity.badRequest().body("Could not read the uploaded files");
+        } finally {
+            if (!submitted) {
+                CertificateBatchService.deleteSpooled(batchFiles);
+                deleteDirectoryQuietly(spoolDirectory);
+            }
+        }
+    }
+    
+    /**
+     * Get progress and per-row results of a bulk issuance job
+     */
+    @GetMapping("/batch/{jobId}")
+    public ResponseEntity<CertificateBatchService.BatchJob> getCertificateBatch(@PathVariable String jobId) {
+        return certificateBatchService.getJob(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    /**
+     * Spool the supported entries of a ZIP archive to disk, failing at the first entry, file or size limit breached.
+     * Entries are counted and their uncompressed bytes bounded while inflating, so a zip bomb stops at the limit.
+     */
+    private void readArchive(MultipartFile archive, Path spoolDirectory, BatchLimits limits,
+                             List<CertificateBatchService.BatchFile> batchFiles) throws IOException {
+        try (ZipInputStream zip = new ZipInputStream(archive.getInputStream())) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (++limits.entries > MAX_ARCHIVE_ENTRIES) {
+                    throw new BatchLimitExceededException("The archive cannot contain more than " + MAX_ARCHIVE_ENTRIES + " entries");
+                }
+                if (entry.isDirectory() || entry.getName().startsWith("__MACOSX/")) {
+                    continue;
+                }
+                String fileName = batchFileName(entry.getName());
+                if (fileName == null) {
+                    continue;
+                }
+                Path target = nextSpoolFile(spoolDirectory, fileName, batchFiles);
+                long remaining = batchMaxTotalSize.toBytes() - limits.totalBytes;
+                limits.totalBytes += copyBounded(zip, target, Math.min(batchMaxFileSize.toBytes(), remaining), fileName);
+                batchFiles.add(toBatchFile(fileName, target));
+            }
+        }
+    }
+    
+    private void spoolUpload(MultipartFile file, Path spoolDirectory, BatchLimits limits,
+                             List<CertificateBatchService.BatchFile> batchFiles) throws IOException {
+        String fileName = batchFileName(file.getOriginalFilename());
+        if (fileName == null) {
+            return;
+        }
+        if (file.getSize() > batchMaxFileSize.toBytes()) {
+            throw new BatchLimitExceededException(fileName + " exceeds the maximum file size of " + batchMaxFileSize);
+        }
+        limits.totalBytes += file.getSize();
+        if (limits.totalBytes > batchMaxTotalSize.toBytes()) {
+            throw new BatchLimitExceededException("A batch cannot exceed " + batchMaxTotalSize + " in total");
+        }
+        Path target = nextSpoolFile(spoolDirectory, fileName, batchFiles);
+        file.transferTo(target);
+        batchFiles.add(toBatchFile(fileName, target));
+    }
+    
+    /**
+     * Spool file for the next batch file; named by position so entry names never become paths
+     */
+    private Path nextSpoolFile(Path spoolDirectory, String fileName, List<CertificateBatchService.BatchFile> batchFiles) {
+        if (batchFiles.size() >= MAX_BATCH_FILES) {
+            throw new BatchLimitExceededException("A batch cannot contain more than " + MAX_BATCH_FILES + " files");
+        }
+        return spoolDirectory.resolve(batchFiles.size() + "." + fileName.substring(fileName.lastIndexOf('.') + 1).toLowerCase());
+    }
+    
+    /**
+     * Copy at most maxBytes to the target, failing as soon as the input is longer
+     */
+    private long copyBounded(InputStream in, Path target, long maxBytes, String fileName) throws IOException {
+        long copied = 0;
+        byte[] buffer = new byte[8192];
+        try (OutputStream out = Files.newOutputStream(target)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                copied += read;
+                if (copied > maxBytes) {
+                    throw new BatchLimitExceededException(fileName + " exceeds the maximum file size of " + batchMaxFileSize +
+                        " or the batch exceeds " + batchMaxTotalSize + " in total");
+                }
+                out.write(buffer, 0, read);
+            }
+        }
+        return copied;
+    }
+    
+    private static void deleteDirectoryQuietly(Path directory) {
+        if (directory == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(directory);
+        } catch (IOException e) {
+            System.err.println("Could not delete batch spool directory " + directory + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * File name of a batch entry; null for hidden files and unsupported extensions, which are ignored
+     */
+    private String batchFileName(String path) {
+        if (path == null) {
+            return null;
+        }
+        String fileName = path.substring(path.lastIndexOf('/') + 1);
+        int dot = fileName.lastIndexOf('.');
+        if (fileName.startsWith(".") || dot <= 0) {
+            return null;
+        }
+        return BATCH_EXTENSIONS.contains(fileName.substring(dot + 1).toLowerCase()) ? fileName : null;
+    }
+    
+    private CertificateBatchService.BatchFile toBatchFile(String fileName, Path content) {
+        int dot = fileName.lastIndexOf('.');
+        return new CertificateBatchService.BatchFile(fileName, fileName.substring(0, dot).trim(),
+            fileName.substring(dot + 1).toLowerCase(), content);
+    }
+    
+    /**
+     * Running counts of one batch request
+     */
+    private static class BatchLimits {
+        private int entries;
+        private long totalBytes;
+    }
+    
     /**
      * Get certificate by code
      */
@@ -106,6 +349,31 @@ public class CertificateController {
         return ResponseEntity.ok(certificates);
     }
     
+    /**
+     * Download every active certificate of a program as a ZIP (with a manifest.csv), streamed to the client
+     */
+    @GetMapping("/program/{programId}/archive")
+    public void downloadProgramArchive(@PathVariable Integer programId,
+                                       HttpServletResponse response) throws IOException {
+        try {
+            List<CertificateArchiveRow> rows = certificateArchiveService.getArchiveRows(programId);
+            
+            if (rows.isEmpty()) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+            
+            response.setContentType("application/zip");
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"program-" + programId + "-certificates.zip\"");
+            certificateArchiveService.writeArchive(rows, response.getOutputStream());
+            response.flushBuffer();
+            
+        } catch (Exception e) {
+            System.err.println("Error building certificate archive for program " + programId + ": " + e.getMessage());
+            DownloadUtil.sendError(response, e);
+        }
+    }
+    
     /**
      * Get certificate by enrollment ID
      */
@@ -120,6 +388,27 @@ public class CertificateController {
         }
     }
     
+    /**
+     * Keyset-paginated listing of active certificates, newest first, as slim rows.
+     * Pass nextCursor from the previous page as cursor to continue.
+     */
+    @GetMapping("/page")
+    public ResponseEntity<?> getCertificatePage(
+            @RequestParam(value = "programId", required = false) Integer programId,
+            @RequestParam(value = "documentNumber", required = false) String documentNumber,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "50") int limit) {
+        try {
+            CursorPage<CertificateListItemDto> page = certificateService.getCertificatePage(
+                programId, documentNumber, from, to, cursor, limit);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+    
     /**
      * Get all certificates
      */
@@ -129,6 +418,19 @@ public class CertificateController {
         return ResponseEntity.ok(certificates);
     }
     
+    /**
+     * Audit certificate storage: list stored keys of active certificates that no longer exist
+     */
+    @GetMapping("/storage-audit")
+    public ResponseEntity<Map<String, Object>> auditStorage() {
+        List<String> missingKeys = certificateService.findMissingStoredFiles();
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("missingCount", missingKeys.size());
+        response.put("missingKeys", missingKeys);
+        return ResponseEntity.ok(response);
+    }
+    
     /**
      * Delete certificate
      */
@@ -143,65 +445,120 @@ public class CertificateController {
     }
     
     /**
-     * Download certificate file from S3
+     * Download certificate file from storage (streamed, supports single Range requests).
+     * Conditional requests are answered with 304 from the certificate row, without opening the stored object.
      */
     @GetMapping("/download/{certificateId}")
-    public ResponseEntity<Resource> downloadCertificate(@PathVariable Integer certificateId) {
+    public void downloadCertificate(@PathVariable Integer certificateId,
+                                    HttpServletRequest request,
+                                    HttpServletResponse response) throws IOException {
         try {
             Optional<Certificate> certificateOpt = certificateService.getCertificateById(certificateId);
             
             if (certificateOpt.isEmpty()) {
-                return ResponseEntity.notFound().build();
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
             }
             
             Certificate certificate = certificateOpt.get();
+            LocalDateTime lastModified = certificate.getUpdatedAt() != null ? certificate.getUpdatedAt() : certificate.getCreatedAt();
+            String etag = DownloadUtil.certificateETag(certificate.getId(), lastModified);
+            if (DownloadUtil.checkNotModified(request, response, etag, lastModified,
+                    CacheControl.maxAge(downloadCacheMaxAge).cachePrivate())) {
+                return;
+            }
             
-            // Download from S3 using the stored S3 key
-            byte[] fileBytes = s3CertificateService.downloadFile(certificate.getFilePath());
-            
-            return ResponseEntity.ok()
-                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + certificate.getFileName() + "\"")
-                .body(new org.springframework.core.io.ByteArrayResource(fileBytes));
+            // Stream from storage using the stored key
+            try (CertificateFileStream file = certificateStorage.openFile(certificate.getFilePath(), DownloadUtil.resolveRange(request, etag))) {
+                DownloadUtil.write(response, file, "attachment; filename=\"" + certificate.getFileName() + "\"");
+            }
             
         } catch (Exception e) {
             System.err.println("Error downloading certificate: " + e.getMessage());
-            return ResponseEntity.internalServerError().build();
+            DownloadUtil.sendError(response, e);
         }
     }
     
     /**
-     * Download QR code from S3
+     * Download QR code (PNG, or SVG for print), rendered from the certificate URL through the QR render cache.
+     * Rendering is deterministic, so responses carry a strong ETag and conditional requests are answered with
+     * 304 Not Modified. The content changes with the issued date when tokens are enabled, so caches must
+     * revalidate every time (private, no-cache).
      */
     @GetMapping("/qr/{certificateId}")
-    public ResponseEntity<Resource> downloadQRCode(@PathVariable Integer certificateId) {
+    public void downloadQRCode(@PathVariable Integer certificateId,
+                               @RequestParam(value = "format", defaultValue = "png") String format,
+                               HttpServletRequest request,
+                               HttpServletResponse response) throws IOException {
         try {
+            QRCodeService.Format qrFormat;
+            try {
+                qrFormat = QRCodeService.Format.valueOf(format.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, "format must be 'png' or 'svg'");
+                return;
+            }
+            
             Optional<Certificate> certificateOpt = certificateService.getCertificateById(certificateId);
             
             if (certificateOpt.isEmpty()) {
-                return ResponseEntity.notFound().build();
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
             }
             
             Certificate certificate = certificateOpt.get();
+            QRCodeService.RenderedQRCode qrCode = qrCodeService.render(
+                certificateService.buildQRCodeUrl(certificate), qrCodeService.getDefaultOptions(), qrFormat);
             
-            if (certificate.getQrCodePath() == null) {
-                return ResponseEntity.notFound().build();
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue());
+            if (new ServletWebRequest(request, response).checkNotModified(qrCode.etag())) {
+                return;
             }
             
-            // Download QR code from S3 using the stored S3 key
-            byte[] qrBytes = s3CertificateService.downloadFile(certificate.getQrCodePath());
-            
-            return ResponseEntity.ok()
-                .contentType(MediaType.IMAGE_PNG)
-                .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + certificate.getCertificateCode() + "_qr.png\"")
-                .body(new org.springframework.core.io.ByteArrayResource(qrBytes));
+            response.setContentType(qrFormat.getContentType());
+            response.setContentLength(qrCode.content().length);
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + certificate.getCertificateCode() + "_qr." + qrFormat.getExtension() + "\"");
+            response.getOutputStream().write(qrCode.content());
+            response.flushBuffer();
             
         } catch (Exception e) {
             System.err.println("Error downloading QR code: " + e.getMessage());
-            return ResponseEntity.internalServerError().build();
+            DownloadUtil.sendError(response, e);
+        }
+    }
+    
+    /**
+     * Start a background job that verifies stored QR objects, backfills them, or detaches them in favour of
+     * on-the-fly rendering; poll GET /qr-migration/{jobId} for progress
+     */
+    @PostMapping("/qr-migration")
+    public ResponseEntity<?> migrateQRCodes(@RequestParam(value = "action", defaultValue = "verify") String action,
+                                            @RequestParam(value = "dryRun", defaultValue = "true") boolean dryRun) {
+        QRCodeMigrationService.Action migrationAction;
+        try {
+            migrationAction = QRCodeMigrationService.Action.valueOf(action.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("action must be 'verify', 'backfill' or 'detach'");
+        }
+        try {
+            QRCodeMigrationService.MigrationReport job = qrCodeMigrationService.submit(migrationAction, dryRun);
+            System.out.println("QR migration " + job.getJobId() + " submitted: " + migrationAction + " (dryRun=" + dryRun + ")");
+            return ResponseEntity.accepted().body(job);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
         }
     }
     
+    /**
+     * Get progress and results of a QR migration job
+     */
+    @GetMapping("/qr-migration/{jobId}")
+    public ResponseEntity<QRCodeMigrationService.MigrationReport> getQRCodeMigration(@PathVariable String jobId) {
+        return qrCodeMigrationService.getJob(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
     /**
      * Update certificate (for updating issue date, etc.)
      */
@@ -1,9 +1,17 @@
 package com.asecapt.app.users.application.controllers;
 
+import com.asecapt.app.users.application.dto.CursorPage;
+import com.asecapt.app.users.application.dto.EnrollmentListItemDto;
 import com.asecapt.app.users.domain.entities.Enrollment;
+import com.asecapt.app.users.domain.services.EnrollmentBulkService;
+import com.asecapt.app.users.domain.services.EnrollmentGradeImportService;
 import com.asecapt.app.users.domain.services.EnrollmentService;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.multipart.MultipartFile;
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDate;
 import java.math.BigDecimal;
 import java.util.List;
@@ -13,9 +21,15 @@ import java.util.Optional;
 @RequestMapping("/api/enrollments")
 public class EnrollmentController {
     private final EnrollmentService enrollmentService;
+    private final EnrollmentGradeImportService enrollmentGradeImportService;
+    private final EnrollmentBulkService enrollmentBulkService;
 
-    public EnrollmentController(EnrollmentService enrollmentService) {
+    public EnrollmentController(EnrollmentService enrollmentService,
+                                EnrollmentGradeImportService enrollmentGradeImportService,
+                                EnrollmentBulkService enrollmentBulkService) {
         this.enrollmentService = enrollmentService;
+        this.enrollmentGradeImportService = enrollmentGradeImportService;
+        this.enrollmentBulkService = enrollmentBulkService;
     }
 
     // Get all enrollments
@@ -24,6 +38,30 @@ public class EnrollmentController {
         return enrollmentService.getAllEnrollments();
     }
 
+    // Keyset-paginated, filterable listing as slim rows; pass nextCursor from the previous page as cursor
+    @GetMapping("/page")
+    public ResponseEntity<?> getEnrollmentPage(
+            @RequestParam(value = "deleted", required = false, defaultValue = "false") Boolean deleted,
+            @RequestParam(value = "includeDeleted", defaultValue = "false") boolean includeDeleted,
+            @RequestParam(value = "status", required = false) String status,
+            @RequestParam(value = "programId", required = false) Integer programId,
+            @RequestParam(value = "userId", required = false) Integer userId,
+            @RequestParam(value = "enrolledFrom", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate enrolledFrom,
+            @RequestParam(value = "enrolledTo", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate enrolledTo,
+            @RequestParam(value = "completedFrom", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate completedFrom,
+            @RequestParam(value = "completedTo", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate completedTo,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "50") int limit) {
+        try {
+            CursorPage<EnrollmentListItemDto> page = enrollmentService.getEnrollmentPage(
+                includeDeleted ? null : deleted, status, programId, userId,
+                enrolledFrom, enrolledTo, completedFrom, completedTo, cursor, limit);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     // Get enrollments by user
     @GetMapping("/user/{userId}")
     public List<Enrollment> getEnrollmentsByUser(@PathVariable Integer userId) {
@@ -42,17 +80,19 @@ public class EnrollmentController {
         return enrollmentService.getCompletedEnrollments();
     }
 
-    // Search completed enrollments
+    // Search completed enrollments by document number, student name, email or program title (best matches first)
     @GetMapping("/completed/search")
-    public List<Enrollment> searchCompletedEnrollments(@RequestParam String query) {
-        return enrollmentService.searchCompletedEnrollments(query);
+    public List<Enrollment> searchCompletedEnrollments(@RequestParam String query,
+                                                       @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        return enrollmentService.searchCompletedEnrollments(query, limit);
     }
 
-    // Get enrollment summary for all active students (optimized endpoint)
+    // Get enrollment summary for all active students, or one student with userId (optimized endpoint)
     @GetMapping("/summary")
-    public ResponseEntity<java.util.Map<Integer, EnrollmentService.EnrollmentSummary>> getEnrollmentSummary() {
+    public ResponseEntity<java.util.Map<Integer, EnrollmentService.EnrollmentSummary>> getEnrollmentSummary(
+            @RequestParam(required = false) Integer userId) {
         try {
-            java.util.Map<Integer, EnrollmentService.EnrollmentSummary> summary = enrollmentService.getEnrollmentSummaryForActiveStudents();
+            java.util.Map<Integer, EnrollmentService.EnrollmentSummary> summary = enrollmentService.getEnrollmentSummaryForActiveStudents(userId);
             return ResponseEntity.ok(summary);
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
@@ -82,6 +122,24 @@ public class EnrollmentController {
         }
     }
 
+    // Enroll many students into a program by user ID or DNI; reactivates soft-deleted enrollments, reports each row
+    @PostMapping("/bulk")
+    public ResponseEntity<?> createEnrollments(@RequestBody BulkEnrollmentRequest request) {
+        boolean byDni = request.getDocumentNumbers() != null && !request.getDocumentNumbers().isEmpty();
+        if (byDni && request.getUserIds() != null && !request.getUserIds().isEmpty()) {
+            return ResponseEntity.badRequest().body("Send either userIds or documentNumbers, not both");
+        }
+        List<String> identifiers = byDni
+            ? request.getDocumentNumbers()
+            : request.getUserIds() == null ? null : request.getUserIds().stream().map(String::valueOf).toList();
+        try {
+            return ResponseEntity.ok(enrollmentBulkService.enroll(
+                request.getProgramId(), identifiers, byDni, request.getStartDate()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     // Update enrollment status
     @PutMapping("/{id}/status")
     public ResponseEntity<Enrollment> updateEnrollmentStatus(
@@ -125,6 +183,26 @@ public class EnrollmentController {
         }
     }
 
+    // Bulk import grades and attendance of a program from a CSV file (DNI, nota, asistencia columns); complete=true also marks them completed
+    @PostMapping("/grades/import")
+    public ResponseEntity<?> importGrades(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam("programId") Integer programId,
+            @RequestParam(value = "complete", defaultValue = "false") boolean complete) {
+        String fileName = file.getOriginalFilename();
+        if (fileName != null && fileName.toLowerCase().matches(".*\\.xlsx?$")) {
+            return ResponseEntity.badRequest().body("Save the spreadsheet as CSV (UTF-8) before importing it");
+        }
+        try (InputStream content = file.getInputStream()) {
+            return ResponseEntity.ok(enrollmentGradeImportService.importGrades(programId, content, complete));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IOException e) {
+            System.err.println("IO error reading grade import: " + e.getMessage());
+            return ResponseEntity.badRequest().body("Could not read the uploaded file");
+        }
+    }
+
     // Delete enrollment
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteEnrollment(@PathVariable Integer id) {
@@ -151,6 +229,22 @@ public class EnrollmentController {
         public void setStartDate(LocalDate startDate) { this.startDate = startDate; }
     }
 
+    public static class BulkEnrollmentRequest {
+        private Integer programId;
+        private List<Integer> userIds;
+        private List<String> documentNumbers;
+        private LocalDate startDate;
+
+        public Integer getProgramId() { return programId; }
+        public void setProgramId(Integer programId) { this.programId = programId; }
+        public List<Integer> getUserIds() { return userIds; }
+        public void setUserIds(List<Integer> userIds) { this.userIds = userIds; }
+        public List<String> getDocumentNumbers() { return documentNumbers; }
+        public void setDocumentNumbers(List<String> documentNumbers) { this.documentNumbers = documentNumbers; }
+        public LocalDate getStartDate() { return startDate; }
+        public void setStartDate(LocalDate startDate) { this.startDate = startDate; }
+    }
+
     public static class UpdateStatusRequest {
         private String status;
 
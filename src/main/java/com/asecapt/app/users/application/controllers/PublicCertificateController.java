@@ -1,20 +1,37 @@
 package com.asecapt.app.users.application.controllers;
 
+import com.asecapt.app.commons.util.DownloadUtil;
+import com.asecapt.app.commons.util.RequestUtil;
+import com.asecapt.app.users.application.dto.CertificateVerificationDto;
 import com.asecapt.app.users.domain.entities.Certificate;
+import com.asecapt.app.users.domain.services.CertificateCodeFilter;
+import com.asecapt.app.users.domain.services.CertificateCodeGenerator;
+import com.asecapt.app.users.domain.services.CertificateFileStream;
 import com.asecapt.app.users.domain.services.CertificateService;
-import com.asecapt.app.users.domain.services.S3CertificateService;
+import com.asecapt.app.users.domain.services.CertificateVerificationCache;
+import com.asecapt.app.users.domain.services.CertificateStorage;
+import com.asecapt.app.users.domain.services.CertificateTokenService;
+import com.asecapt.app.users.domain.services.CertificateValidationWriter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.UrlResource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -27,7 +44,29 @@ public class PublicCertificateController {
     private CertificateService certificateService;
     
     @Autowired
-    private S3CertificateService s3CertificateService;
+    private CertificateStorage certificateStorage;
+    
+    @Autowired
+    private CertificateVerificationCache certificateVerificationCache;
+    
+    @Autowired
+    private CertificateTokenService certificateTokenService;
+    
+    @Autowired
+    private CertificateCodeFilter certificateCodeFilter;
+    
+    @Autowired
+    private CertificateCodeGenerator certificateCodeGenerator;
+    
+    @Autowired
+    private CertificateValidationWriter certificateValidationWriter;
+    
+    @Value("${app.certificates.http-cache.download-max-age:1h}")
+    private Duration downloadCacheMaxAge;
+    
+    /** Zero means clients revalidate every time, so every scan reaches the audit trail */
+    @Value("${app.certificates.http-cache.verification-max-age:0s}")
+    private Duration verificationCacheMaxAge;
 
     /**
      * Search certificates by student document number
@@ -37,22 +76,21 @@ public class PublicCertificateController {
         try {
             System.out.println("Searching certificates for document: " + documentNumber);
             
-            var certificates = certificateService.getCertificatesByStudentDocument(documentNumber);
+            List<CertificateVerificationDto> certificates = certificateService.getVerificationsByStudentDocument(documentNumber);
             
             if (certificates.isEmpty()) {
                 return ResponseEntity.ok(createSearchErrorResponse("NO_CERTIFICATES_FOUND", "No se encontraron certificados para este documento"));
             }
             
-            // Create response with certificates list
+            // Create response with certificates list (the query only returns active certificates)
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("certificates", certificates.stream()
-                .filter(Certificate::getIsActive) // Only active certificates
                 .map(this::createCertificateInfo)
                 .toArray());
             response.put("count", certificates.size());
             
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().cacheControl(verificationCacheControl()).body(response);
             
         } catch (Exception e) {
             System.err.println("Error searching certificates: " + e.getMessage());
@@ -65,41 +103,140 @@ public class PublicCertificateController {
      * Public endpoint to verify and display certificate information
      */
     @GetMapping("/{certificateCode}")
-    public ResponseEntity<Map<String, Object>> verifyCertificate(@PathVariable String certificateCode) {
+    public ResponseEntity<Map<String, Object>> verifyCertificate(@PathVariable String certificateCode, HttpServletRequest request) {
+        Map<String, Object> response;
+        String result;
         try {
             System.out.println("Verifying certificate with code: " + certificateCode);
             
-            Optional<Certificate> certificateOpt = certificateService.getCertificateByCode(certificateCode);
-            
-            if (certificateOpt.isEmpty()) {
-                return ResponseEntity.ok(createErrorResponse("CERTIFICATE_NOT_FOUND", "Certificado no encontrado"));
-            }
-            
-            Certificate certificate = certificateOpt.get();
+            // Malformed codes and codes that were never issued are rejected without a database round trip
+            boolean mightExist = certificateCodeGenerator.isWellFormed(certificateCode)
+                && certificateCodeFilter.mightContain(certificateCode);
+            response = mightExist
+                ? certificateVerificationCache.get(certificateCode, this::buildVerificationResponse)
+                : null;
             
-            // Check if certificate is active
-            if (!certificate.getIsActive()) {
-                return ResponseEntity.ok(createErrorResponse("CERTIFICATE_INACTIVE", "Certificado inactivo o revocado"));
+            if (response == null) {
+                if (mightExist) {
+                    certificateCodeFilter.recordFalsePositive();
+                }
+                response = createErrorResponse("CERTIFICATE_NOT_FOUND", "Certificado no encontrado");
+                result = CertificateValidationWriter.RESULT_NOT_FOUND;
+            } else {
+                result = Boolean.TRUE.equals(response.get("valid"))
+                    ? CertificateValidationWriter.RESULT_VALID
+                    : CertificateValidationWriter.RESULT_INACTIVE;
             }
             
-            // Create response with certificate information
-            Map<String, Object> response = new HashMap<>();
-            response.put("valid", true);
-            response.put("certificate", createCertificateInfo(certificate));
-            
-            return ResponseEntity.ok(response);
-            
         } catch (Exception e) {
             System.err.println("Error verifying certificate: " + e.getMessage());
             e.printStackTrace();
-            return ResponseEntity.ok(createErrorResponse("INTERNAL_ERROR", "Error interno del servidor"));
+            response = createErrorResponse("INTERNAL_ERROR", "Error interno del servidor");
+            result = CertificateValidationWriter.RESULT_ERROR;
         }
+        
+        certificateValidationWriter.record(certificateIdOf(response), certificateCode, RequestUtil.clientIp(request),
+            request.getHeader(HttpHeaders.USER_AGENT), result, response);
+        return ResponseEntity.ok().cacheControl(verificationCacheControl()).body(response);
+    }
+    
+    /**
+     * Verify a signed certificate token from the QR URL without a database lookup; only revocation and
+     * superseded issued dates are checked, against the in-memory revocation sets. Passing documentNumber also checks the token holder.
+     */
+    @GetMapping("/token/{token}")
+    public ResponseEntity<Map<String, Object>> verifyCertificateToken(@PathVariable String token,
+                                                                      @RequestParam(required = false) String documentNumber,
+                                                                      HttpServletRequest request) {
+        Map<String, Object> response;
+        String result;
+        String certificateCode = null;
+        Optional<CertificateTokenService.TokenClaims> claimsOpt = certificateTokenService.verify(token);
+        
+        if (claimsOpt.isEmpty()) {
+            response = createErrorResponse("INVALID_TOKEN", "Token de certificado inválido");
+            result = CertificateValidationWriter.RESULT_INVALID_TOKEN;
+        } else if (certificateTokenService.isRevoked(claimsOpt.get().certificateCode())) {
+            certificateCode = claimsOpt.get().certificateCode();
+            response = createErrorResponse("CERTIFICATE_INACTIVE", "Certificado inactivo o revocado");
+            result = CertificateValidationWriter.RESULT_INACTIVE;
+        } else if (certificateTokenService.isSuperseded(claimsOpt.get())) {
+            // The certificate's issued date changed after this token was signed
+            certificateCode = claimsOpt.get().certificateCode();
+            response = createErrorResponse("TOKEN_SUPERSEDED", "Código QR reemplazado, verifique el certificado por su código");
+            result = CertificateValidationWriter.RESULT_INVALID_TOKEN;
+        } else {
+            CertificateTokenService.TokenClaims claims = claimsOpt.get();
+            certificateCode = claims.certificateCode();
+            
+            Map<String, Object> certInfo = new HashMap<>();
+            certInfo.put("certificateCode", claims.certificateCode());
+            certInfo.put("programInitials", claims.programInitials());
+            certInfo.put("issuedDate", claims.issuedDate());
+            
+            response = new HashMap<>();
+            response.put("valid", true);
+            response.put("authentic", true);
+            response.put("certificate", certInfo);
+            if (documentNumber != null) {
+                response.put("documentMatches", certificateTokenService.matchesDocument(claims, documentNumber));
+            }
+            result = CertificateValidationWriter.RESULT_VALID;
+        }
+        
+        certificateValidationWriter.record(null, certificateCode != null ? certificateCode : token, RequestUtil.clientIp(request),
+            request.getHeader(HttpHeaders.USER_AGENT), result, response);
+        return ResponseEntity.ok().cacheControl(verificationCacheControl()).body(response);
+    }
+    
+    /**
+     * Cache-Control of verification and search responses
+     */
+    private CacheControl verificationCacheControl() {
+        return verificationCacheMaxAge.isZero()
+            ? CacheControl.noCache()
+            : CacheControl.maxAge(verificationCacheMaxAge).cachePublic();
+    }
+    
+    /**
+     * Certificate ID of a successful verification response, for the audit trail
+     */
+    private static Integer certificateIdOf(Map<String, Object> response) {
+        if (response.get("certificate") instanceof Map<?, ?> certificate && certificate.get("id") instanceof Integer id) {
+            return id;
+        }
+        return null;
+    }
+    
+    /**
+     * Build the verification response for a certificate code (null when the code does not exist)
+     */
+    private Map<String, Object> buildVerificationResponse(String certificateCode) {
+        Optional<CertificateVerificationDto> certificateOpt = certificateService.getVerificationByCode(certificateCode);
+        
+        if (certificateOpt.isEmpty()) {
+            return null;
+        }
+        
+        CertificateVerificationDto certificate = certificateOpt.get();
+        
+        // Check if certificate is active
+        if (!certificate.getIsActive()) {
+            return createErrorResponse("CERTIFICATE_INACTIVE", "Certificado inactivo o revocado");
+        }
+        
+        // Create response with certificate information
+        Map<String, Object> response = new HashMap<>();
+        response.put("valid", true);
+        response.put("certificate", createCertificateInfo(certificate));
+        
+        return response;
     }
     
     /**
      * Create certificate information for public display
      */
-    private Map<String, Object> createCertificateInfo(Certificate certificate) {
+    private Map<String, Object> createCertificateInfo(CertificateVerificationDto certificate) {
         Map<String, Object> certInfo = new HashMap<>();
         
         // Basic certificate info
@@ -109,46 +246,31 @@ public class PublicCertificateController {
         certInfo.put("createdAt", certificate.getCreatedAt());
         
         // Student information (from enrollment)
-        if (certificate.getEnrollment() != null && certificate.getEnrollment().getUser() != null) {
-            Map<String, Object> studentInfo = new HashMap<>();
-            var user = certificate.getEnrollment().getUser();
-            
-            if (user.getPerson() != null) {
-                studentInfo.put("firstName", user.getPerson().getFirstName());
-                studentInfo.put("lastName", user.getPerson().getLastName());
-                studentInfo.put("documentNumber", user.getPerson().getDocumentNumber());
-                studentInfo.put("email", user.getPerson().getEmail());
-            }
-            
-            certInfo.put("student", studentInfo);
+        Map<String, Object> studentInfo = new HashMap<>();
+        if (certificate.getDocumentNumber() != null) {
+            studentInfo.put("firstName", certificate.getFirstName());
+            studentInfo.put("lastName", certificate.getLastName());
+            studentInfo.put("documentNumber", certificate.getDocumentNumber());
+            studentInfo.put("email", certificate.getEmail());
         }
+        certInfo.put("student", studentInfo);
         
         // Program information (from enrollment)
-        if (certificate.getEnrollment() != null && certificate.getEnrollment().getProgram() != null) {
-            Map<String, Object> programInfo = new HashMap<>();
-            var program = certificate.getEnrollment().getProgram();
-            
-            programInfo.put("title", program.getTitle());
-            programInfo.put("description", program.getDescription());
-            programInfo.put("duration", program.getDuration());
-            programInfo.put("credits", program.getCredits());
-            
-            certInfo.put("program", programInfo);
-        }
+        Map<String, Object> programInfo = new HashMap<>();
+        programInfo.put("title", certificate.getProgramTitle());
+        programInfo.put("description", certificate.getProgramDescription());
+        programInfo.put("duration", certificate.getProgramDuration());
+        programInfo.put("credits", certificate.getProgramCredits());
+        certInfo.put("program", programInfo);
         
         // Enrollment information
-        if (certificate.getEnrollment() != null) {
-            Map<String, Object> enrollmentInfo = new HashMap<>();
-            var enrollment = certificate.getEnrollment();
-            
-            enrollmentInfo.put("status", enrollment.getStatus());
-            enrollmentInfo.put("enrollmentDate", enrollment.getEnrollmentDate()); // ← Cambiar de getCreatedAt() a getEnrollmentDate()
-            enrollmentInfo.put("completionDate", enrollment.getCompletionDate());
-            enrollmentInfo.put("finalGrade", enrollment.getFinalGrade());
-            enrollmentInfo.put("attendancePercentage", enrollment.getAttendancePercentage());
-            
-            certInfo.put("enrollment", enrollmentInfo);
-        }
+        Map<String, Object> enrollmentInfo = new HashMap<>();
+        enrollmentInfo.put("status", certificate.getEnrollmentStatus());
+        enrollmentInfo.put("enrollmentDate", certificate.getEnrollmentDate());
+        enrollmentInfo.put("completionDate", certificate.getCompletionDate());
+        enrollmentInfo.put("finalGrade", certificate.getFinalGrade());
+        enrollmentInfo.put("attendancePercentage", certificate.getAttendancePercentage());
+        certInfo.put("enrollment", enrollmentInfo);
         
         return certInfo;
     }
@@ -176,35 +298,44 @@ public class PublicCertificateController {
     }
     
     /**
-     * Public endpoint to download certificate file from S3
+     * Public endpoint to download certificate file from S3 (streamed, supports single Range requests).
+     * Conditional requests are answered with 304 from the certificate row, without opening the stored object.
      */
     @GetMapping("/download/{certificateId}")
-    public ResponseEntity<Resource> downloadCertificate(@PathVariable Integer certificateId) {
+    public void downloadCertificate(@PathVariable Integer certificateId,
+                                    HttpServletRequest request,
+                                    HttpServletResponse response) throws IOException {
         try {
             Optional<Certificate> certificateOpt = certificateService.getCertificateById(certificateId);
             
             if (certificateOpt.isEmpty()) {
-                return ResponseEntity.notFound().build();
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
             }
             
             Certificate certificate = certificateOpt.get();
             
             // Check if certificate is active
             if (!certificate.getIsActive()) {
-                return ResponseEntity.notFound().build();
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
             }
             
-            // Download from S3 using the stored S3 key
-            byte[] fileBytes = s3CertificateService.downloadFile(certificate.getFilePath());
+            LocalDateTime lastModified = certificate.getUpdatedAt() != null ? certificate.getUpdatedAt() : certificate.getCreatedAt();
+            String etag = DownloadUtil.certificateETag(certificate.getId(), lastModified);
+            if (DownloadUtil.checkNotModified(request, response, etag, lastModified,
+                    CacheControl.maxAge(downloadCacheMaxAge).cachePublic())) {
+                return;
+            }
             
-            return ResponseEntity.ok()
-                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + certificate.getFileName() + "\"")
-                .body(new org.springframework.core.io.ByteArrayResource(fileBytes));
+            // Stream from storage using the stored key
+            try (CertificateFileStream file = certificateStorage.openFile(certificate.getFilePath(), DownloadUtil.resolveRange(request, etag))) {
+                DownloadUtil.write(response, file, "attachment; filename=\"" + certificate.getFileName() + "\"");
+            }
             
         } catch (Exception e) {
             System.err.println("Error downloading certificate: " + e.getMessage());
-            return ResponseEntity.internalServerError().build();
+            DownloadUtil.sendError(response, e);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,10 @@
+package com.asecapt.app.users.application.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Certificate fields needed to add its file to a program archive and describe it in the manifest
+ */
+public record CertificateArchiveRow(String certificateCode, String filePath, String fileName, LocalDateTime issuedDate,
+                                    String documentNumber, String firstName, String lastName) {
+}
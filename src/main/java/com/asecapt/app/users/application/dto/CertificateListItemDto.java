@@ -0,0 +1,11 @@
+package com.asecapt.app.users.application.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Slim certificate row for admin listings (no entity graph)
+ */
+public record CertificateListItemDto(Integer id, String certificateCode, LocalDateTime issuedDate, Boolean isActive,
+                                     Integer enrollmentId, Integer programId, String programTitle,
+                                     String documentNumber, String firstName, String lastName) {
+}
@@ -0,0 +1,10 @@
+package com.asecapt.app.users.application.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Certificate fields needed to locate, render and verify its QR code object
+ */
+public record CertificateQRCodeRow(Integer id, String certificateCode, String qrCodePath,
+                                   String documentNumber, String programTitle, LocalDateTime issuedDate) {
+}
@@ -0,0 +1,7 @@
+package com.asecapt.app.users.application.dto;
+
+/**
+ * Storage keys referenced by a certificate (file and, when stored, QR code)
+ */
+public record CertificateStoredKeysRow(String filePath, String qrCodePath) {
+}
@@ -0,0 +1,85 @@
+package com.asecapt.app.users.application.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Read model for public certificate verification, populated by a single joined
+ * constructor-expression query (certificate + enrollment + user/person + program).
+ */
+public class CertificateVerificationDto {
+    private final Integer id;
+    private final String certificateCode;
+    private final LocalDateTime issuedDate;
+    private final LocalDateTime createdAt;
+    private final Boolean isActive;
+
+    private final String firstName;
+    private final String lastName;
+    private final String documentNumber;
+    private final String email;
+
+    private final Integer programId;
+    private final String programTitle;
+    private final String programDescription;
+    private final String programDuration;
+    private final Integer programCredits;
+
+    private final String enrollmentStatus;
+    private final LocalDate enrollmentDate;
+    private final LocalDate completionDate;
+    private final BigDecimal finalGrade;
+    private final BigDecimal attendancePercentage;
+
+    public CertificateVerificationDto(Integer id, String certificateCode, LocalDateTime issuedDate,
+                                      LocalDateTime createdAt, Boolean isActive,
+                                      String firstName, String lastName, String documentNumber, String email,
+                                      Integer programId, String programTitle, String programDescription,
+                                      String programDuration, Integer programCredits,
+                                      String enrollmentStatus, LocalDate enrollmentDate, LocalDate completionDate,
+                                      BigDecimal finalGrade, BigDecimal attendancePercentage) {
+        this.id = id;
+        this.certificateCode = certificateCode;
+        this.issuedDate = issuedDate;
+        this.createdAt = createdAt;
+        this.isActive = isActive;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.documentNumber = documentNumber;
+        this.email = email;
+        this.programId = programId;
+        this.programTitle = programTitle;
+        this.programDescription = programDescription;
+        this.programDuration = programDuration;
+        this.programCredits = programCredits;
+        this.enrollmentStatus = enrollmentStatus;
+        this.enrollmentDate = enrollmentDate;
+        this.completionDate = completionDate;
+        this.finalGrade = finalGrade;
+        this.attendancePercentage = attendancePercentage;
+    }
+
+    public Integer getId() { return id; }
+    public String getCertificateCode() { return certificateCode; }
+    public LocalDateTime getIssuedDate() { return issuedDate; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public Boolean getIsActive() { return isActive; }
+
+    public String getFirstName() { return firstName; }
+    public String getLastName() { return lastName; }
+    public String getDocumentNumber() { return documentNumber; }
+    public String getEmail() { return email; }
+
+    public Integer getProgramId() { return programId; }
+    public String getProgramTitle() { return programTitle; }
+    public String getProgramDescription() { return programDescription; }
+    public String getProgramDuration() { return programDuration; }
+    public Integer getProgramCredits() { return programCredits; }
+
+    public String getEnrollmentStatus() { return enrollmentStatus; }
+    public LocalDate getEnrollmentDate() { return enrollmentDate; }
+    public LocalDate getCompletionDate() { return completionDate; }
+    public BigDecimal getFinalGrade() { return finalGrade; }
+    public BigDecimal getAttendancePercentage() { return attendancePercentage; }
+}
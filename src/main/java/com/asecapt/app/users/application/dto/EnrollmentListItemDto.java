@@ -0,0 +1,14 @@
+package com.asecapt.app.users.application.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Slim enrollment row for admin listings, with student and program names (no entity graph)
+ */
+public record EnrollmentListItemDto(Integer id, Integer userId, Integer programId, String status,
+                                    LocalDate enrollmentDate, LocalDate startDate, LocalDate completionDate,
+                                    BigDecimal finalGrade, BigDecimal attendancePercentage, Boolean deleted,
+                                    String documentNumber, String firstName, String lastName, String email,
+                                    String programTitle) {
+}
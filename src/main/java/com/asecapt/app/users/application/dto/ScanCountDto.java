@@ -0,0 +1,9 @@
+package com.asecapt.app.users.application.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Scan count of one time bucket and validation result
+ */
+public record ScanCountDto(LocalDateTime bucketStart, String validationResult, Long scans) {
+}
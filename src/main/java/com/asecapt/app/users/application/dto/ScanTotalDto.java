@@ -0,0 +1,7 @@
+package com.asecapt.app.users.application.dto;
+
+/**
+ * Total scans of one certificate or program (id 0 groups unknown codes)
+ */
+public record ScanTotalDto(Integer id, Long scans) {
+}
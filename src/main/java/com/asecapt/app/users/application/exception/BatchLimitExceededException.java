@@ -0,0 +1,12 @@
+package com.asecapt.app.users.application.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.PAYLOAD_TOO_LARGE)
+public class BatchLimitExceededException extends RuntimeException {
+
+	public BatchLimitExceededException(String message) {
+		super(message);
+	}
+}
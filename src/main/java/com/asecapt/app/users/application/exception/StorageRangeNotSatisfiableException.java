@@ -0,0 +1,16 @@
+package com.asecapt.app.users.application.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+public class StorageRangeNotSatisfiableException extends StorageException {
+
+	public StorageRangeNotSatisfiableException(String message) {
+		super(message);
+	}
+
+	public StorageRangeNotSatisfiableException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
@@ -4,7 +4,10 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "certificates")
+@Table(name = "certificates", indexes = {
+    @Index(name = "idx_certificates_active_issued", columnList = "is_active, issued_date, id"),
+    @Index(name = "idx_certificates_created_at", columnList = "created_at")
+})
 public class Certificate {
     
     @Id
@@ -27,6 +30,10 @@ public class Certificate {
     @Column(name = "qr_code_path")
     private String qrCodePath;
     
+    /** SHA-256 of the certificate file, referencing its certificate_blob row; null for certificates stored per key */
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+    
     @Column(name = "issued_date", nullable = false)
     private LocalDateTime issuedDate;
     
@@ -104,6 +111,14 @@ public class Certificate {
         this.qrCodePath = qrCodePath;
     }
     
+    public String getContentHash() {
+        return contentHash;
+    }
+    
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+    
     public LocalDateTime getIssuedDate() {
         return issuedDate;
     }
@@ -0,0 +1,38 @@
+package com.asecapt.app.users.domain.entities;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * A stored certificate file addressed by the SHA-256 of its bytes. refCount is the number of active certificates
+ * pointing at it; rows are written with JDBC upserts by CertificateBlobService.
+ */
+@Data
+@Entity
+@Table(name = "certificate_blob", indexes = {
+    @Index(name = "idx_certificate_blob_unreferenced", columnList = "ref_count, updated_at")
+})
+@NoArgsConstructor
+public class CertificateBlob {
+    
+    @Id
+    @Column(name = "content_hash", length = 64, nullable = false)
+    private String contentHash;
+    
+    @Column(name = "storage_key", nullable = false)
+    private String storageKey;
+    
+    @Column(name = "size_bytes", nullable = false)
+    private Long sizeBytes;
+    
+    @Column(name = "ref_count", nullable = false)
+    private Integer refCount;
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+    
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
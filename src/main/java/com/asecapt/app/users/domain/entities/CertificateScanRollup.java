@@ -0,0 +1,45 @@
+package com.asecapt.app.users.domain.entities;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * Pre-aggregated count of public certificate scans per time bucket (HOUR or DAY), certificate and result.
+ * Unknown certificates and programs are stored as 0. Rows are upserted as audit events are flushed.
+ */
+@Data
+@Entity
+@Table(name = "certificate_scan_rollup", indexes = {
+    @Index(name = "idx_scan_rollup_program", columnList = "granularity, program_id, bucket_start")
+})
+@IdClass(CertificateScanRollupId.class)
+@NoArgsConstructor
+public class CertificateScanRollup {
+    
+    public static final String HOUR = "HOUR";
+    public static final String DAY = "DAY";
+    
+    @Id
+    @Column(name = "granularity", length = 5, nullable = false)
+    private String granularity;
+    
+    @Id
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+    
+    @Id
+    @Column(name = "certificate_id", nullable = false)
+    private Integer certificateId;
+    
+    @Id
+    @Column(name = "validation_result", length = 20, nullable = false)
+    private String validationResult;
+    
+    @Column(name = "program_id", nullable = false)
+    private Integer programId;
+    
+    @Column(name = "scan_count", nullable = false)
+    private Long scanCount;
+}
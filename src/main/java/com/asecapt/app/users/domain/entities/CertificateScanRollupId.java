@@ -0,0 +1,69 @@
+package com.asecapt.app.users.domain.entities;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+public class CertificateScanRollupId implements Serializable {
+    private String granularity;
+    private LocalDateTime bucketStart;
+    private Integer certificateId;
+    private String validationResult;
+
+    public CertificateScanRollupId() {}
+
+    public CertificateScanRollupId(String granularity, LocalDateTime bucketStart, Integer certificateId, String validationResult) {
+        this.granularity = granularity;
+        this.bucketStart = bucketStart;
+        this.certificateId = certificateId;
+        this.validationResult = validationResult;
+    }
+
+    public String getGranularity() {
+        return granularity;
+    }
+
+    public void setGranularity(String granularity) {
+        this.granularity = granularity;
+    }
+
+    public LocalDateTime getBucketStart() {
+        return bucketStart;
+    }
+
+    public void setBucketStart(LocalDateTime bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+
+    public Integer getCertificateId() {
+        return certificateId;
+    }
+
+    public void setCertificateId(Integer certificateId) {
+        this.certificateId = certificateId;
+    }
+
+    public String getValidationResult() {
+        return validationResult;
+    }
+
+    public void setValidationResult(String validationResult) {
+        this.validationResult = validationResult;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CertificateScanRollupId that = (CertificateScanRollupId) o;
+        return Objects.equals(granularity, that.granularity) &&
+               Objects.equals(bucketStart, that.bucketStart) &&
+               Objects.equals(certificateId, that.certificateId) &&
+               Objects.equals(validationResult, that.validationResult);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(granularity, bucketStart, certificateId, validationResult);
+    }
+}
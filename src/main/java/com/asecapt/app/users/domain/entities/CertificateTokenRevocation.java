@@ -0,0 +1,33 @@
+package com.asecapt.app.users.domain.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Signed QR tokens superseded by a change of the certificate's issued date: tokens of this certificate code
+ * signed with this issued date are no longer accepted (see CertificateTokenService).
+ */
+@Data
+@Entity
+@Table(name = "certificate_token_revocation")
+@IdClass(CertificateTokenRevocationId.class)
+@NoArgsConstructor
+@AllArgsConstructor
+public class CertificateTokenRevocation {
+    
+    @Id
+    @Column(name = "certificate_code", length = 64, nullable = false)
+    private String certificateCode;
+    
+    @Id
+    @Column(name = "issued_date", nullable = false)
+    private LocalDate issuedDate;
+    
+    @Column(name = "revoked_at", nullable = false)
+    private LocalDateTime revokedAt;
+}
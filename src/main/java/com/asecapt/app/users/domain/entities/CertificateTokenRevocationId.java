@@ -0,0 +1,47 @@
+package com.asecapt.app.users.domain.entities;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+public class CertificateTokenRevocationId implements Serializable {
+    private String certificateCode;
+    private LocalDate issuedDate;
+
+    public CertificateTokenRevocationId() {}
+
+    public CertificateTokenRevocationId(String certificateCode, LocalDate issuedDate) {
+        this.certificateCode = certificateCode;
+        this.issuedDate = issuedDate;
+    }
+
+    public String getCertificateCode() {
+        return certificateCode;
+    }
+
+    public void setCertificateCode(String certificateCode) {
+        this.certificateCode = certificateCode;
+    }
+
+    public LocalDate getIssuedDate() {
+        return issuedDate;
+    }
+
+    public void setIssuedDate(LocalDate issuedDate) {
+        this.issuedDate = issuedDate;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CertificateTokenRevocationId that = (CertificateTokenRevocationId) o;
+        return Objects.equals(certificateCode, that.certificateCode) &&
+               Objects.equals(issuedDate, that.issuedDate);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(certificateCode, issuedDate);
+    }
+}
@@ -13,7 +13,7 @@ public class CertificateValidation {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Integer id;
     
-    @Column(name = "certificate_id", nullable = false)
+    @Column(name = "certificate_id")
     private Integer certificateId;
     
     @Column(name = "validation_token", length = 100, nullable = false)
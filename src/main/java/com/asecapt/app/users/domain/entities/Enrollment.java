@@ -8,7 +8,11 @@ import java.time.LocalDateTime;
 
 @Data
 @Entity
-@Table(name = "enrollment")
+@Table(name = "enrollment", indexes = {
+    @Index(name = "idx_enrollment_deleted_date", columnList = "deleted, enrollment_date, id"),
+    @Index(name = "idx_enrollment_status_date", columnList = "status, deleted, enrollment_date, id"),
+    @Index(name = "idx_enrollment_program_date", columnList = "program_id, deleted, enrollment_date, id")
+})
 public class Enrollment {
     
     @Id
@@ -0,0 +1,28 @@
+package com.asecapt.app.users.domain.entities;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Number of non-deleted enrollments per student and status, recomputed for a student whenever one of
+ * their enrollments is created, changes status or is deleted (see EnrollmentSummaryService).
+ */
+@Data
+@Entity
+@Table(name = "enrollment_status_summary")
+@IdClass(EnrollmentStatusSummaryId.class)
+@NoArgsConstructor
+public class EnrollmentStatusSummary {
+    
+    @Id
+    @Column(name = "user_id", nullable = false)
+    private Integer userId;
+    
+    @Id
+    @Column(name = "status", length = 20, nullable = false)
+    private String status;
+    
+    @Column(name = "enrollment_count", nullable = false)
+    private Integer enrollmentCount;
+}
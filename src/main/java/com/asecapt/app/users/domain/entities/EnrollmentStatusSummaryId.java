@@ -0,0 +1,46 @@
+package com.asecapt.app.users.domain.entities;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+public class EnrollmentStatusSummaryId implements Serializable {
+    private Integer userId;
+    private String status;
+
+    public EnrollmentStatusSummaryId() {}
+
+    public EnrollmentStatusSummaryId(Integer userId, String status) {
+        this.userId = userId;
+        this.status = status;
+    }
+
+    public Integer getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Integer userId) {
+        this.userId = userId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        EnrollmentStatusSummaryId that = (EnrollmentStatusSummaryId) o;
+        return Objects.equals(userId, that.userId) &&
+               Objects.equals(status, that.status);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(userId, status);
+    }
+}
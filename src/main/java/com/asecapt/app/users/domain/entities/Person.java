@@ -4,7 +4,11 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "person")
+@Table(name = "person", indexes = {
+    @Index(name = "idx_person_last_name", columnList = "last_name"),
+    @Index(name = "idx_person_first_name", columnList = "first_name"),
+    @Index(name = "idx_person_email", columnList = "email")
+})
 public class Person {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -6,7 +6,9 @@ import java.time.LocalDateTime;
 
 @Data
 @Entity
-@Table(name = "program")
+@Table(name = "program", indexes = {
+    @Index(name = "idx_program_title", columnList = "title")
+})
 public class Program {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
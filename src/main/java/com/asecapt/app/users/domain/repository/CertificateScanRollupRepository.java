@@ -0,0 +1,49 @@
+package com.asecapt.app.users.domain.repository;
+
+import com.asecapt.app.users.application.dto.ScanCountDto;
+import com.asecapt.app.users.application.dto.ScanTotalDto;
+import com.asecapt.app.users.domain.entities.CertificateScanRollup;
+import com.asecapt.app.users.domain.entities.CertificateScanRollupId;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface CertificateScanRollupRepository extends JpaRepository<CertificateScanRollup, CertificateScanRollupId> {
+    
+    // Scan series per bucket and result, optionally for one certificate or program
+    @Query("SELECT new com.asecapt.app.users.application.dto.ScanCountDto(r.bucketStart, r.validationResult, SUM(r.scanCount)) " +
+           "FROM CertificateScanRollup r " +
+           "WHERE r.granularity = :granularity AND r.bucketStart >= :from AND r.bucketStart < :to " +
+           "AND (:certificateId IS NULL OR r.certificateId = :certificateId) " +
+           "AND (:programId IS NULL OR r.programId = :programId) " +
+           "GROUP BY r.bucketStart, r.validationResult " +
+           "ORDER BY r.bucketStart")
+    List<ScanCountDto> findScanSeries(@Param("granularity") String granularity,
+                                      @Param("from") LocalDateTime from,
+                                      @Param("to") LocalDateTime to,
+                                      @Param("certificateId") Integer certificateId,
+                                      @Param("programId") Integer programId);
+    
+    // Most scanned certificates in a range (daily buckets)
+    @Query("SELECT new com.asecapt.app.users.application.dto.ScanTotalDto(r.certificateId, SUM(r.scanCount)) " +
+           "FROM CertificateScanRollup r " +
+           "WHERE r.granularity = 'DAY' AND r.bucketStart >= :from AND r.bucketStart < :to AND r.certificateId <> 0 " +
+           "GROUP BY r.certificateId " +
+           "ORDER BY SUM(r.scanCount) DESC")
+    List<ScanTotalDto> findTopCertificates(@Param("from") LocalDateTime from,
+                                           @Param("to") LocalDateTime to,
+                                           Pageable pageable);
+    
+    // Scans per program in a range (daily buckets)
+    @Query("SELECT new com.asecapt.app.users.application.dto.ScanTotalDto(r.programId, SUM(r.scanCount)) " +
+           "FROM CertificateScanRollup r " +
+           "WHERE r.granularity = 'DAY' AND r.bucketStart >= :from AND r.bucketStart < :to " +
+           "GROUP BY r.programId " +
+           "ORDER BY SUM(r.scanCount) DESC")
+    List<ScanTotalDto> findProgramTotals(@Param("from") LocalDateTime from,
+                                         @Param("to") LocalDateTime to);
+}
@@ -0,0 +1,21 @@
+package com.asecapt.app.users.domain.repository;
+
+import com.asecapt.app.users.domain.entities.CertificateTokenRevocation;
+import com.asecapt.app.users.domain.entities.CertificateTokenRevocationId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+
+public interface CertificateTokenRevocationRepository extends JpaRepository<CertificateTokenRevocation, CertificateTokenRevocationId> {
+
+    /**
+     * Drop the revocation of a certificate's tokens for one issued date (the date became current again)
+     */
+    @Modifying
+    @Query("DELETE FROM CertificateTokenRevocation r WHERE r.certificateCode = :certificateCode AND r.issuedDate = :issuedDate")
+    int deleteByCertificateCodeAndIssuedDate(@Param("certificateCode") String certificateCode,
+                                             @Param("issuedDate") LocalDate issuedDate);
+}
@@ -1,7 +1,10 @@
 package com.asecapt.app.users.domain.repository;
 
 import com.asecapt.app.users.domain.entities.CertificateValidation;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -27,4 +30,13 @@ public interface CertificateValidationRepository extends JpaRepository<Certifica
     
     // Get recent validations ordered by date (using Spring Data method naming)
     List<CertificateValidation> findAllByOrderByValidatedAtDesc();
+    
+    // Keyset page of the raw audit log: validations older than beforeId, newest first, optionally by result
+    @Query("SELECT v FROM CertificateValidation v " +
+           "WHERE (:beforeId IS NULL OR v.id < :beforeId) " +
+           "AND (:validationResult IS NULL OR v.validationResult = :validationResult) " +
+           "ORDER BY v.id DESC")
+    List<CertificateValidation> findPageBefore(@Param("beforeId") Integer beforeId,
+                                               @Param("validationResult") String validationResult,
+                                               Pageable pageable);
 } 
\ No newline at end of file
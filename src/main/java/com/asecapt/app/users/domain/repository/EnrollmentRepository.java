@@ -1,12 +1,25 @@
 package com.asecapt.app.users.domain.repository;
 
+import com.asecapt.app.users.application.dto.EnrollmentListItemDto;
 import com.asecapt.app.users.domain.entities.Enrollment;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface EnrollmentRepository extends JpaRepository<Enrollment, Integer> {
     
+    // Load an enrollment with a row lock (SELECT ... FOR UPDATE), serializing certificate issuance for it
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM Enrollment e WHERE e.id = :id")
+    Optional<Enrollment> findByIdForUpdate(@Param("id") Integer id);
+    
     // Find all active enrollments (excluding soft-deleted)
     List<Enrollment> findByDeletedFalse();
     
@@ -45,4 +58,49 @@ public interface EnrollmentRepository extends JpaRepository<Enrollment, Integer>
     
     // Find active enrollments by status ordered by completion date (excluding soft-deleted)
     List<Enrollment> findByStatusAndDeletedFalseOrderByCompletionDateDesc(String status);
-} 
\ No newline at end of file
+    
+    // Most recently completed enrollments first, limited by the page (same order as the completed search)
+    List<Enrollment> findByStatusAndDeletedFalseOrderByCompletionDateDescIdDesc(String status, Pageable pageable);
+    
+    // Load active enrollments with student and program in one query (bulk certificate issuance)
+    @Query("SELECT e FROM Enrollment e JOIN FETCH e.user u JOIN FETCH u.person JOIN FETCH e.program " +
+           "WHERE e.id IN :ids AND e.deleted = false")
+    List<Enrollment> findWithStudentAndProgramByIdIn(@Param("ids") Collection<Integer> ids);
+    
+    // Load active enrollments of a program for the given student documents in one query (bulk certificate issuance)
+    @Query("SELECT e FROM Enrollment e JOIN FETCH e.user u JOIN FETCH u.person p JOIN FETCH e.program " +
+           "WHERE e.programId = :programId AND p.documentNumber IN :documentNumbers AND e.deleted = false")
+    List<Enrollment> findWithStudentAndProgramByProgramIdAndDocumentNumberIn(@Param("programId") Integer programId,
+                                                                            @Param("documentNumbers") Collection<String> documentNumbers);
+    
+    // Keyset page of enrollments with student and program names, newest enrollment date first (single joined query).
+    // Pass the enrollmentDate/id of the last row of the previous page as the cursor (both null for the first page).
+    @Query("SELECT new com.asecapt.app.users.application.dto.EnrollmentListItemDto(" +
+           "e.id, e.userId, e.programId, e.status, e.enrollmentDate, e.startDate, e.completionDate, " +
+           "e.finalGrade, e.attendancePercentage, e.deleted, p.documentNumber, p.firstName, p.lastName, p.email, pr.title) " +
+           "FROM Enrollment e " +
+           "JOIN e.user u " +
+           "LEFT JOIN u.person p " +
+           "JOIN e.program pr " +
+           "WHERE (:deleted IS NULL OR e.deleted = :deleted) " +
+           "AND (:status IS NULL OR e.status = :status) " +
+           "AND (:programId IS NULL OR e.programId = :programId) " +
+           "AND (:userId IS NULL OR e.userId = :userId) " +
+           "AND (:enrolledFrom IS NULL OR e.enrollmentDate >= :enrolledFrom) " +
+           "AND (:enrolledTo IS NULL OR e.enrollmentDate < :enrolledTo) " +
+           "AND (:completedFrom IS NULL OR e.completionDate >= :completedFrom) " +
+           "AND (:completedTo IS NULL OR e.completionDate < :completedTo) " +
+           "AND (:cursorDate IS NULL OR e.enrollmentDate < :cursorDate OR (e.enrollmentDate = :cursorDate AND e.id < :cursorId)) " +
+           "ORDER BY e.enrollmentDate DESC, e.id DESC")
+    List<EnrollmentListItemDto> findPage(@Param("deleted") Boolean deleted,
+                                         @Param("status") String status,
+                                         @Param("programId") Integer programId,
+                                         @Param("userId") Integer userId,
+                                         @Param("enrolledFrom") LocalDate enrolledFrom,
+                                         @Param("enrolledTo") LocalDate enrolledTo,
+                                         @Param("completedFrom") LocalDate completedFrom,
+                                         @Param("completedTo") LocalDate completedTo,
+                                         @Param("cursorDate") LocalDate cursorDate,
+                                         @Param("cursorId") Integer cursorId,
+                                         Pageable pageable);
+}
@@ -0,0 +1,16 @@
+package com.asecapt.app.users.domain.repository;
+
+import com.asecapt.app.users.domain.entities.EnrollmentStatusSummary;
+import com.asecapt.app.users.domain.entities.EnrollmentStatusSummaryId;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface EnrollmentStatusSummaryRepository extends JpaRepository<EnrollmentStatusSummary, EnrollmentStatusSummaryId> {
+    
+    // Status counts of every student
+    List<EnrollmentStatusSummary> findAllByOrderByUserId();
+    
+    // Status counts of one student
+    List<EnrollmentStatusSummary> findByUserId(Integer userId);
+}
@@ -0,0 +1,149 @@
+package com.asecapt.app.users.domain.services;
+
+import com.asecapt.app.users.application.dto.CertificateArchiveRow;
+import com.asecapt.app.users.application.exception.StorageFileNotFoundException;
+import com.asecapt.app.users.infrastructure.repository.CertificateRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Streams the certificates of a program as a ZIP archive. Files are fetched from storage a few at a time ahead of
+ * the writer (a bounded prefetch window), so at most that many objects are held in memory. Certificate files are
+ * stored uncompressed (PDFs and images are already compressed) and a manifest.csv describes every entry.
+ */
+@Slf4j
+@Service
+public class CertificateArchiveService {
+
+    private static final String MANIFEST_NAME = "manifest.csv";
+
+    private final CertificateRepository certificateRepository;
+    private final CertificateStorage certificateStorage;
+    private final Executor certificateTaskExecutor;
+    private final int prefetchWindow;
+
+    public CertificateArchiveService(CertificateRepository certificateRepository,
+                                     CertificateStorage certificateStorage,
+                                     @Qualifier("certificateTaskExecutor") Executor certificateTaskExecutor,
+                                     @Value("${app.certificates.archive.prefetch-window:4}") int prefetchWindow) {
+        this.certificateRepository = certificateRepository;
+        this.certificateStorage = certificateStorage;
+        this.certificateTaskExecutor = certificateTaskExecutor;
+        this.prefetchWindow = Math.max(1, prefetchWindow);
+    }
+
+    /**
+     * Active certificates of the program that an archive would contain
+     */
+    public List<CertificateArchiveRow> getArchiveRows(Integer programId) {
+        return certificateRepository.findArchiveRowsByProgramId(programId);
+    }
+
+    /**
+     * Write the archive of the given rows to the output; the output is not closed
+     */
+    public void writeArchive(List<CertificateArchiveRow> rows, OutputStream out) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(out);
+        StringBuilder manifest = new StringBuilder("certificate_code,document_number,first_name,last_name,issued_date,file_name,status\n");
+        Set<String> entryNames = new HashSet<>();
+        Deque<CompletableFuture<byte[]>> inFlight = new ArrayDeque<>(prefetchWindow);
+
+        int next = 0;
+        try {
+            for (CertificateArchiveRow row : rows) {
+                while (next < rows.size() && inFlight.size() < prefetchWindow) {
+                    inFlight.addLast(fetch(rows.get(next++)));
+                }
+
+                String status;
+                String entryName = uniqueEntryName(row, entryNames);
+                try {
+                    byte[] content = inFlight.removeFirst().join();
+                    writeStoredEntry(zip, entryName, content);
+                    status = "OK";
+                } catch (CompletionException e) {
+                    status = e.getCause() instanceof StorageFileNotFoundException ? "MISSING" : "ERROR";
+                    entryName = "";
+                    log.warn("Certificate {} not added to archive: {}", row.certificateCode(), e.getCause().getMessage());
+                }
+
+                manifest.append(csv(row.certificateCode())).append(',')
+                    .append(csv(row.documentNumber())).append(',')
+                    .append(csv(row.firstName())).append(',')
+                    .append(csv(row.lastName())).append(',')
+                    .append(row.issuedDate() != null ? row.issuedDate().toLocalDate() : "").append(',')
+                    .append(csv(entryName)).append(',')
+                    .append(status).append('\n');
+            }
+
+            zip.putNextEntry(new ZipEntry(MANIFEST_NAME));
+            zip.write(manifest.toString().getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+            zip.finish();
+        } finally {
+            // Client went away or writing failed: do not leave downloads running for nothing
+            inFlight.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private CompletableFuture<byte[]> fetch(CertificateArchiveRow row) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return certificateStorage.downloadFile(row.filePath());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, certificateTaskExecutor);
+    }
+
+    private static void writeStoredEntry(ZipOutputStream zip, String name, byte[] content) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(content.length);
+        entry.setCompressedSize(content.length);
+        entry.setCrc(crc.getValue());
+        zip.putNextEntry(entry);
+        zip.write(content);
+        zip.closeEntry();
+    }
+
+    private static String uniqueEntryName(CertificateArchiveRow row, Set<String> used) {
+        String base = row.fileName() != null ? row.fileName() : row.certificateCode();
+        String name = row.documentNumber() != null ? row.documentNumber() + "_" + base : base;
+        String candidate = name;
+        for (int i = 2; !used.add(candidate); i++) {
+            candidate = i + "_" + name;
+        }
+        return candidate;
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+}
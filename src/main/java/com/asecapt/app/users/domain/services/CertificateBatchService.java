@@ -0,0 +1,491 @@
+package com.asecapt.app.users.domain.services;
+
+import com.asecapt.app.users.domain.entities.Enrollment;
+import com.asecapt.app.users.domain.repository.EnrollmentRepository;
+import com.asecapt.app.users.infrastructure.repository.CertificateRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bulk certificate issuance for a cohort. A job validates every enrollment with one query,
+ * uploads files (and QR codes, when stored) with bounded concurrency, then inserts the certificate rows
+ * with JDBC batching. Progress and per-row results are kept in memory for polling.
+ */
+@Slf4j
+@Service
+public class CertificateBatchService {
+
+    public enum MapBy { ENROLLMENT, DNI }
+
+    private static final int INSERT_BATCH_SIZE = 100;
+    private static final Duration JOB_RETENTION = Duration.ofHours(24);
+    private static final String INSERT_SQL =
+        "INSERT INTO certificates (certificate_code, enrollment_id, file_path, file_name, qr_code_path, " +
+        "content_hash, issued_date, created_at, is_active) VALUES (?, ?, ?, ?, ?, ?, ?, ?, TRUE)";
+
+    private final CertificateService certificateService;
+    private final EnrollmentRepository enrollmentRepository;
+    private final CertificateRepository certificateRepository;
+    private final QRCodeService qrCodeService;
+    private final CertificateStorage certificateStorage;
+    private final CertificateBlobService certificateBlobService;
+    private final CertificateCodeFilter certificateCodeFilter;
+    private final CourseInitialsService courseInitialsService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor certificateTaskExecutor;
+    private final Executor certificateBatchExecutor;
+    private final int uploadConcurrency;
+    private final boolean storeQrObjects;
+
+    private final Map<String, BatchJob> jobs = new ConcurrentHashMap<>();
+
+    public CertificateBatchService(CertificateService certificateService,
+                                   EnrollmentRepository enrollmentRepository,
+                                   CertificateRepository certificateRepository,
+                                   QRCodeService qrCodeService,
+                                   CertificateStorage certificateStorage,
+                                   CertificateBlobService certificateBlobService,
+                                   CertificateCodeFilter certificateCodeFilter,
+                                   CourseInitialsService courseInitialsService,
+                                   JdbcTemplate jdbcTemplate,
+                                   TransactionTemplate transactionTemplate,
+                                   @Qualifier("certificateTaskExecutor") Executor certificateTaskExecutor,
+                                   @Qualifier("certificateBatchExecutor") Executor certificateBatchExecutor,
+                                   @Value("${app.certificates.batch.upload-concurrency:4}") int uploadConcurrency,
+                                   @Value("${app.certificates.qr.store-objects:true}") boolean storeQrObjects) {
+        this.certificateService = certificateService;
+        this.enrollmentRepository = enrollmentRepository;
+        this.certificateRepository = certificateRepository;
+        this.qrCodeService = qrCodeService;
+        this.certificateStorage = certificateStorage;
+        this.certificateBlobService = certificateBlobService;
+        this.certificateCodeFilter = certificateCodeFilter;
+        this.courseInitialsService = courseInitialsService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.certificateTaskExecutor = certificateTaskExecutor;
+        this.certificateBatchExecutor = certificateBatchExecutor;
+        this.uploadConcurrency = uploadConcurrency;
+        this.storeQrObjects = storeQrObjects;
+    }
+
+    /**
+     * Start a batch job. Each file's base name (without extension) is the enrollment ID or the student DNI,
+     * depending on mapBy; DNI mapping requires the programId. The job owns the spooled files from here on
+     * and deletes them when it finishes.
+     * @throws BatchRejectedException when the batch executor is saturated; the files are left to the caller
+     */
+    public BatchJob submit(List<BatchFile> files, MapBy mapBy, Integer programId, LocalDateTime issuedDate) {
+        if (mapBy == MapBy.DNI && programId == null) {
+            throw new RuntimeException("programId is required when mapping files by DNI");
+        }
+        purgeExpiredJobs();
+
+        BatchJob job = new BatchJob(UUID.randomUUID().toString(), files);
+        jobs.put(job.getJobId(), job);
+        try {
+            certificateBatchExecutor.execute(() -> run(job, files, mapBy, programId,
+                issuedDate != null ? issuedDate : LocalDateTime.now()));
+        } catch (TaskRejectedException e) {
+            jobs.remove(job.getJobId());
+            throw new BatchRejectedException("Too many certificate batches in progress, try again later");
+        }
+        return job;
+    }
+
+    /**
+     * Delete spooled batch files and the directories that held them
+     */
+    public static void deleteSpooled(List<BatchFile> files) {
+        Set<Path> directories = new HashSet<>();
+        for (BatchFile file : files) {
+            try {
+                Files.deleteIfExists(file.content());
+                directories.add(file.content().getParent());
+            } catch (IOException e) {
+                log.warn("Could not delete spooled batch file {}: {}", file.content(), e.getMessage());
+            }
+        }
+        for (Path directory : directories) {
+            try {
+                Files.deleteIfExists(directory);
+            } catch (IOException e) {
+                log.warn("Could not delete spool directory {}: {}", directory, e.getMessage());
+            }
+        }
+    }
+
+    public Optional<BatchJob> getJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    private void run(BatchJob job, List<BatchFile> files, MapBy mapBy, Integer programId, LocalDateTime issuedDate) {
+        job.status = "RUNNING";
+        try {
+            List<PreparedItem> prepared = prepare(job, files, mapBy, programId);
+            List<PreparedItem> uploaded = upload(job, prepared, issuedDate);
+            insert(job, uploaded, issuedDate);
+            job.status = "COMPLETED";
+        } catch (RuntimeException e) {
+            log.error("Certificate batch {} failed", job.getJobId(), e);
+            job.status = "FAILED";
+            job.message = e.getMessage();
+        } finally {
+            job.finishedAt = LocalDateTime.now();
+            deleteSpooled(files);
+        }
+        log.info("Certificate batch {} finished: {} issued, {} failed", job.getJobId(), job.getSucceeded(), job.getFailed());
+    }
+
+    /**
+     * Resolve and validate all enrollments with a single query, generating codes for the valid rows
+     */
+    private List<PreparedItem> prepare(BatchJob job, List<BatchFile> files, MapBy mapBy, Integer programId) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnly.setReadOnly(true);
+
+        return readOnly.execute(status -> {
+            Set<String> identifiers = new HashSet<>();
+            Set<Integer> enrollmentIds = new HashSet<>();
+            for (BatchFile file : files) {
+                identifiers.add(file.identifier());
+                if (mapBy == MapBy.ENROLLMENT) {
+                    Integer id = parseEnrollmentId(file.identifier());
+                    if (id != null) {
+                        enrollmentIds.add(id);
+                    }
+                }
+            }
+
+            List<Enrollment> enrollments = mapBy == MapBy.ENROLLMENT
+                ? (enrollmentIds.isEmpty() ? List.of() : enrollmentRepository.findWithStudentAndProgramByIdIn(enrollmentIds))
+                : enrollmentRepository.findWithStudentAndProgramByProgramIdAndDocumentNumberIn(programId, identifiers);
+
+            Map<String, Enrollment> byIdentifier = new HashMap<>();
+            for (Enrollment enrollment : enrollments) {
+                String key = mapBy == MapBy.ENROLLMENT
+                    ? String.valueOf(enrollment.getId())
+                    : enrollment.getUser().getPerson().getDocumentNumber();
+                byIdentifier.put(key, enrollment);
+            }
+
+            Set<Integer> alreadyIssued = enrollments.isEmpty() ? Set.of() : new HashSet<>(
+                certificateRepository.findEnrollmentIdsWithActiveCertificate(
+                    enrollments.stream().map(Enrollment::getId).toList()));
+
+            List<PreparedItem> prepared = new ArrayList<>();
+            Set<String> seen = new HashSet<>();
+            for (int i = 0; i < files.size(); i++) {
+                BatchFile file = files.get(i);
+                RowResult row = job.rows.get(i);
+                String identifier = mapBy == MapBy.ENROLLMENT ? normalizeEnrollmentId(file.identifier()) : file.identifier();
+
+                Enrollment enrollment = identifier != null ? byIdentifier.get(identifier) : null;
+                if (enrollment == null) {
+                    job.fail(row, "Enrollment not found for " + file.identifier());
+                    continue;
+                }
+                row.enrollmentId = enrollment.getId();
+                if (!seen.add(identifier)) {
+                    job.fail(row, "Duplicate file for the same enrollment");
+                    continue;
+                }
+                if (alreadyIssued.contains(enrollment.getId())) {
+                    job.fail(row, "Certificate already exists for this enrollment");
+                    continue;
+                }
+                try {
+                    certificateService.validateEligibility(enrollment);
+                } catch (RuntimeException e) {
+                    job.fail(row, e.getMessage());
+                    continue;
+                }
+
+                String courseInitials = courseInitialsService.generateCourseInitials(enrollment.getProgram().getTitle());
+                prepared.add(new PreparedItem(row, file, enrollment.getId(),
+                    certificateService.generateCertificateCode(enrollment),
+                    enrollment.getUser().getPerson().getDocumentNumber(),
+                    courseInitials));
+            }
+            return prepared;
+        });
+    }
+
+    /**
+     * Upload the certificate (and the QR code, when stored) per row, with at most uploadConcurrency rows in flight
+     */
+    private List<PreparedItem> upload(BatchJob job, List<PreparedItem> prepared, LocalDateTime issuedDate) {
+        Semaphore permits = new Semaphore(uploadConcurrency);
+        List<PreparedItem> uploaded = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+        for (PreparedItem item : prepared) {
+            permits.acquireUninterruptibly();
+            futures.add(CompletableFuture.runAsync(() -> {
+                try {
+                    item.blob = certificateBlobService.store(item.file.content(), item.file.extension());
+                    if (storeQrObjects) {
+                        byte[] qrCodeBytes = qrCodeService.generateQRCodeBytes(certificateService.buildQRCodeUrl(
+                            item.certificateCode, item.dni, item.courseInitials, issuedDate), item.certificateCode);
+                        item.qrKey = certificateStorage.uploadQRCode(item.dni, item.courseInitials,
+                            item.certificateCode, qrCodeBytes);
+                    }
+                    uploaded.add(item);
+                } catch (RuntimeException | IOException e) {
+                    deleteQuietly(item);
+                    job.fail(item.row, "Upload failed: " + e.getMessage());
+                } finally {
+                    permits.release();
+                }
+            }, certificateTaskExecutor));
+        }
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        return uploaded;
+    }
+
+    /**
+     * Insert certificate rows with JDBC batching, one transaction per chunk. A chunk that fails as a whole
+     * is retried row by row, so only the offending rows are reported as failed.
+     */
+    private void insert(BatchJob job, List<PreparedItem> uploaded, LocalDateTime issuedDate) {
+        Timestamp issued = Timestamp.valueOf(issuedDate);
+        for (int from = 0; from < uploaded.size(); from += INSERT_BATCH_SIZE) {
+            List<PreparedItem> chunk = uploaded.subList(from, Math.min(from + INSERT_BATCH_SIZE, uploaded.size()));
+            if (!insertChunk(job, chunk, issued)) {
+                chunk.forEach(item -> insertChunk(job, List.of(item), issued));
+            }
+        }
+    }
+
+    /**
+     * Insert one chunk in one transaction. The enrollments are locked and re-checked first, as createCertificate
+     * does, since a single upload may have issued a certificate for one of them during the upload phase.
+     * @return false when a chunk of several rows failed and none of its rows was reported
+     */
+    private boolean insertChunk(BatchJob job, List<PreparedItem> chunk, Timestamp issued) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Set<PreparedItem> conflicting;
+        try {
+            conflicting = transactionTemplate.execute(status -> {
+                Object[] enrollmentIds = chunk.stream().map(item -> item.enrollmentId).distinct().sorted().toArray();
+                jdbcTemplate.queryForList("SELECT id FROM enrollment WHERE id IN (" +
+                    String.join(",", Collections.nCopies(enrollmentIds.length, "?")) + ") ORDER BY id FOR UPDATE",
+                    Integer.class, enrollmentIds);
+                Set<Integer> issuedMeanwhile = new HashSet<>(certificateRepository.findEnrollmentIdsWithActiveCertificate(
+                    chunk.stream().map(item -> item.enrollmentId).toList()));
+
+                Set<PreparedItem> conflicts = new HashSet<>();
+                List<PreparedItem> rows = new ArrayList<>(chunk.size());
+                for (PreparedItem item : chunk) {
+                    (issuedMeanwhile.contains(item.enrollmentId) ? conflicts : rows).add(item);
+                }
+                if (!rows.isEmpty()) {
+                    jdbcTemplate.batchUpdate(INSERT_SQL, rows, rows.size(), (ps, item) -> {
+                        ps.setString(1, item.certificateCode);
+                        ps.setInt(2, item.enrollmentId);
+                        ps.setString(3, item.blob.storageKey());
+                        ps.setString(4, certificateService.generateFileName(item.courseInitials, item.certificateCode, item.file.extension()));
+                        ps.setString(5, item.qrKey);
+                        ps.setString(6, item.blob.contentHash());
+                        ps.setTimestamp(7, issued);
+                        ps.setTimestamp(8, now);
+                    });
+                }
+                return conflicts;
+            });
+        } catch (RuntimeException e) {
+            if (chunk.size() > 1) {
+                log.warn("Certificate batch {} chunk insert failed, retrying its {} rows one by one: {}",
+                    job.getJobId(), chunk.size(), e.getMessage());
+                return false;
+            }
+            PreparedItem item = chunk.get(0);
+            log.error("Certificate batch {} insert failed for {}", job.getJobId(), item.file.fileName(), e);
+            deleteQuietly(item);
+            job.fail(item.row, "Insert failed: " + e.getMessage());
+            return true;
+        }
+
+        for (PreparedItem item : chunk) {
+            if (conflicting.contains(item)) {
+                deleteQuietly(item);
+                job.fail(item.row, "Certificate already exists for this enrollment");
+            } else {
+                certificateCodeFilter.add(item.certificateCode);
+                job.succeed(item.row, item.certificateCode);
+            }
+        }
+        return true;
+    }
+
+    private void deleteQuietly(PreparedItem item) {
+        if (item.blob != null) {
+            try {
+                certificateBlobService.release(item.blob.contentHash());
+            } catch (RuntimeException e) {
+                log.warn("Could not release certificate blob {}: {}", item.blob.contentHash(), e.getMessage());
+            }
+        }
+        if (item.qrKey != null) {
+            try {
+                certificateStorage.deleteFile(item.qrKey);
+            } catch (RuntimeException e) {
+                log.warn("Could not delete orphan certificate object {}: {}", item.qrKey, e.getMessage());
+            }
+        }
+    }
+
+    private void purgeExpiredJobs() {
+        LocalDateTime threshold = LocalDateTime.now().minus(JOB_RETENTION);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(threshold));
+    }
+
+    private static Integer parseEnrollmentId(String identifier) {
+        try {
+            return Integer.valueOf(identifier.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String normalizeEnrollmentId(String identifier) {
+        Integer id = parseEnrollmentId(identifier);
+        return id != null ? String.valueOf(id) : null;
+    }
+
+    /**
+     * A certificate file of the batch, spooled to local disk: identifier is the enrollment ID or DNI taken from the file name
+     */
+    public record BatchFile(String fileName, String identifier, String extension, Path content) {
+    }
+
+    /**
+     * The batch executor's queue is full
+     */
+    public static class BatchRejectedException extends RuntimeException {
+        public BatchRejectedException(String message) {
+            super(message);
+        }
+    }
+
+    private static class PreparedItem {
+        private final RowResult row;
+        private final BatchFile file;
+        private final Integer enrollmentId;
+        private final String certificateCode;
+        private final String dni;
+        private final String courseInitials;
+        private volatile CertificateBlobService.StoredBlob blob;
+        private volatile String qrKey;
+
+        PreparedItem(RowResult row, BatchFile file, Integer enrollmentId, String certificateCode,
+                     String dni, String courseInitials) {
+            this.row = row;
+            this.file = file;
+            this.enrollmentId = enrollmentId;
+            this.certificateCode = certificateCode;
+            this.dni = dni;
+            this.courseInitials = courseInitials;
+        }
+    }
+
+    /**
+     * Progress and per-row report of a batch job
+     */
+    public static class BatchJob {
+        private final String jobId;
+        private final int total;
+        private final List<RowResult> rows;
+        private final AtomicInteger succeeded = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final LocalDateTime createdAt = LocalDateTime.now();
+        private volatile String status = "PENDING";
+        private volatile String message;
+        private volatile LocalDateTime finishedAt;
+
+        BatchJob(String jobId, List<BatchFile> files) {
+            this.jobId = jobId;
+            this.total = files.size();
+            List<RowResult> rowResults = new ArrayList<>(files.size());
+            for (int i = 0; i < files.size(); i++) {
+                rowResults.add(new RowResult(i + 1, files.get(i).fileName()));
+            }
+            this.rows = Collections.unmodifiableList(rowResults);
+        }
+
+        void succeed(RowResult row, String certificateCode) {
+            row.certificateCode = certificateCode;
+            row.status = "ISSUED";
+            succeeded.incrementAndGet();
+        }
+
+        void fail(RowResult row, String message) {
+            row.status = "FAILED";
+            row.message = message;
+            failed.incrementAndGet();
+        }
+
+        public String getJobId() { return jobId; }
+        public String getStatus() { return status; }
+        public String getMessage() { return message; }
+        public int getTotal() { return total; }
+        public int getProcessed() { return succeeded.get() + failed.get(); }
+        public int getSucceeded() { return succeeded.get(); }
+        public int getFailed() { return failed.get(); }
+        public LocalDateTime getCreatedAt() { return createdAt; }
+        public LocalDateTime getFinishedAt() { return finishedAt; }
+        public List<RowResult> getRows() { return rows; }
+    }
+
+    /**
+     * Outcome of one file of a batch
+     */
+    public static class RowResult {
+        private final int row;
+        private final String fileName;
+        private volatile Integer enrollmentId;
+        private volatile String status = "PENDING";
+        private volatile String certificateCode;
+        private volatile String message;
+
+        RowResult(int row, String fileName) {
+            this.row = row;
+            this.fileName = fileName;
+        }
+
+        public int getRow() { return row; }
+        public String getFileName() { return fileName; }
+        public Integer getEnrollmentId() { return enrollmentId; }
+        public String getStatus() { return status; }
+        public String getCertificateCode() { return certificateCode; }
+        public String getMessage() { return message; }
+    }
+}
@@ -0,0 +1,246 @@
+package com.asecapt.app.users.domain.services;
+
+import com.asecapt.app.users.application.exception.StorageException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Content-addressed storage of certificate files. A file is stored once per distinct SHA-256 under
+ * blobs/{prefix}/{sha256}.{ext}; certificate_blob counts the certificates referencing it, so re-issuing
+ * identical bytes costs neither storage nor a PUT. Blobs left without references (soft-deleted certificates,
+ * failed issuances) are deleted by a periodic collection once a grace period has passed.
+ */
+@Slf4j
+@Service
+public class CertificateBlobService {
+
+    private static final String ACQUIRE_SQL =
+        "UPDATE certificate_blob SET ref_count = ref_count + 1, updated_at = ? WHERE content_hash = ?";
+    private static final String INSERT_SQL =
+        "INSERT INTO certificate_blob (content_hash, storage_key, size_bytes, ref_count, created_at, updated_at) " +
+        "VALUES (?, ?, ?, 1, ?, ?) ON DUPLICATE KEY UPDATE ref_count = ref_count + 1, updated_at = VALUES(updated_at)";
+    private static final String RELEASE_SQL =
+        "UPDATE certificate_blob SET ref_count = ref_count - 1, updated_at = ? WHERE content_hash = ? AND ref_count > 0";
+    private static final String STORAGE_KEY_SQL = "SELECT storage_key FROM certificate_blob WHERE content_hash = ?";
+    private static final int GC_BATCH_SIZE = 500;
+
+    private final CertificateStorage certificateStorage;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration gcGracePeriod;
+    private final DataSize inMemoryThreshold;
+
+    private final Counter stored;
+    private final Counter deduplicated;
+    private final Counter collected;
+
+    public CertificateBlobService(CertificateStorage certificateStorage,
+                                  JdbcTemplate jdbcTemplate,
+                                  TransactionTemplate transactionTemplate,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${app.certificates.blobs.gc-grace:7d}") Duration gcGracePeriod,
+                                  @Value("${app.certificates.upload.in-memory-threshold:1MB}") DataSize inMemoryThreshold) {
+        this.certificateStorage = certificateStorage;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.gcGracePeriod = gcGracePeriod;
+        this.inMemoryThreshold = inMemoryThreshold;
+
+        this.stored = blobCounter(meterRegistry, "stored");
+        this.deduplicated = blobCounter(meterRegistry, "deduplicated");
+        this.collected = blobCounter(meterRegistry, "collected");
+    }
+
+    /**
+     * Store a certificate file, or take a reference on the identical file already stored.
+     * The reference must be given back with release() if the certificate is not persisted.
+     */
+    public StoredBlob store(byte[] content, String fileExtension) {
+        String contentHash = HexFormat.of().formatHex(sha256().digest(content));
+        return store(contentHash, content.length,
+            () -> certificateStorage.uploadBlob(contentHash, content, fileExtension.toLowerCase()));
+    }
+
+    /**
+     * Store an uploaded certificate file without copying it into the heap. Files up to the in-memory threshold
+     * are read as bytes; larger ones are hashed from the container's spooled part and then streamed to storage,
+     * which only happens when the bytes are not stored yet.
+     */
+    public StoredBlob store(MultipartFile file, String fileExtension) throws IOException {
+        long size = file.getSize();
+        if (size <= inMemoryThreshold.toBytes()) {
+            return store(file.getBytes(), fileExtension);
+        }
+        return storeStreamed(file::getInputStream, size, fileExtension);
+    }
+
+    /**
+     * Store a certificate file spooled to local disk, with the same in-memory threshold as uploads
+     */
+    public StoredBlob store(Path file, String fileExtension) throws IOException {
+        long size = Files.size(file);
+        if (size <= inMemoryThreshold.toBytes()) {
+            return store(Files.readAllBytes(file), fileExtension);
+        }
+        return storeStreamed(() -> Files.newInputStream(file), size, fileExtension);
+    }
+
+    private StoredBlob storeStreamed(ContentSource source, long size, String fileExtension) throws IOException {
+        MessageDigest digest = sha256();
+        long hashed;
+        try (InputStream in = new DigestInputStream(source.open(), digest)) {
+            hashed = in.transferTo(OutputStream.nullOutputStream());
+        }
+        if (hashed != size) {
+            throw new StorageException("Uploaded file changed while reading: expected " + size + " bytes, read " + hashed);
+        }
+        String contentHash = HexFormat.of().formatHex(digest.digest());
+        return store(contentHash, size, () -> {
+            try (InputStream in = source.open()) {
+                return certificateStorage.uploadBlob(contentHash, in, size, fileExtension.toLowerCase());
+            } catch (IOException e) {
+                throw new StorageException("Error streaming certificate file", e);
+            }
+        });
+    }
+
+    private StoredBlob store(String contentHash, long size, Supplier<String> upload) {
+        String existingKey = transactionTemplate.execute(status -> {
+            if (jdbcTemplate.update(ACQUIRE_SQL, now(), contentHash) == 0) {
+                return null;
+            }
+            return jdbcTemplate.queryForObject(STORAGE_KEY_SQL, String.class, contentHash);
+        });
+        if (existingKey != null) {
+            deduplicated.increment();
+            return new StoredBlob(contentHash, existingKey, size, true);
+        }
+
+        String key = upload.get();
+        String storageKey = transactionTemplate.execute(status -> {
+            Timestamp now = now();
+            jdbcTemplate.update(INSERT_SQL, contentHash, key, size, now, now);
+            return jdbcTemplate.queryForObject(STORAGE_KEY_SQL, String.class, contentHash);
+        });
+        if (!key.equals(storageKey)) {
+            // A concurrent upload of the same bytes with another extension won the insert: keep its object
+            deleteQuietly(key);
+        }
+        stored.increment();
+        return new StoredBlob(contentHash, storageKey, size, false);
+    }
+
+    /**
+     * Drop a reference taken by store(); the blob becomes collectable when no references remain
+     */
+    public void release(String contentHash) {
+        if (contentHash == null) {
+            return;
+        }
+        if (jdbcTemplate.update(RELEASE_SQL, now(), contentHash) == 0) {
+            log.warn("Certificate blob {} released without a reference", contentHash);
+        }
+    }
+
+    /**
+     * Delete blobs that have had no references for the whole grace period. Each blob is deleted while its row is
+     * locked, so a concurrent store() of the same bytes either takes its reference first or uploads it again.
+     * @return number of blobs deleted
+     */
+    @Scheduled(initialDelayString = "${app.certificates.blobs.gc-interval-ms:3600000}",
+               fixedDelayString = "${app.certificates.blobs.gc-interval-ms:3600000}")
+    public int collectGarbage() {
+        Timestamp threshold = Timestamp.valueOf(LocalDateTime.now().minus(gcGracePeriod));
+        List<String> candidates = jdbcTemplate.queryForList(
+            "SELECT content_hash FROM certificate_blob WHERE ref_count = 0 AND updated_at < ? LIMIT " + GC_BATCH_SIZE,
+            String.class, threshold);
+
+        int deleted = 0;
+        for (String contentHash : candidates) {
+            try {
+                Boolean collectedBlob = transactionTemplate.execute(status -> {
+                    List<String> keys = jdbcTemplate.queryForList(
+                        "SELECT storage_key FROM certificate_blob WHERE content_hash = ? AND ref_count = 0 AND updated_at < ? FOR UPDATE",
+                        String.class, contentHash, threshold);
+                    if (keys.isEmpty()) {
+                        return false;
+                    }
+                    certificateStorage.deleteFile(keys.get(0));
+                    jdbcTemplate.update("DELETE FROM certificate_blob WHERE content_hash = ?", contentHash);
+                    return true;
+                });
+                if (Boolean.TRUE.equals(collectedBlob)) {
+                    deleted++;
+                }
+            } catch (RuntimeException e) {
+                log.warn("Could not collect certificate blob {}: {}", contentHash, e.getMessage());
+            }
+        }
+        collected.increment(deleted);
+        if (deleted > 0) {
+            log.info("Collected {} unreferenced certificate blobs", deleted);
+        }
+        return deleted;
+    }
+
+    private void deleteQuietly(String key) {
+        try {
+            certificateStorage.deleteFile(key);
+        } catch (RuntimeException e) {
+            log.warn("Could not delete duplicate certificate blob {}: {}", key, e.getMessage());
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static Timestamp now() {
+        return Timestamp.valueOf(LocalDateTime.now());
+    }
+
+    private static Counter blobCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("certificate.blob.operations")
+            .description("Content-addressed certificate file operations by outcome")
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+
+    @FunctionalInterface
+    private interface ContentSource {
+        InputStream open() throws IOException;
+    }
+
+    /**
+     * A referenced certificate file; deduplicated when the bytes were already stored
+     */
+    public record StoredBlob(String contentHash, String storageKey, long size, boolean deduplicated) {
+    }
+}
@@ -0,0 +1,281 @@
+package com.asecapt.app.users.domain.services;
+
+import com.asecapt.app.users.infrastructure.repository.CertificateRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Stream;
+
+/**
+ * Bloom filter of every issued certificate code, so public lookups of codes that were never issued
+ * (typos, scrapers) are answered without a database round trip. Built at startup from a streaming query,
+ * updated as certificates are issued and rebuilt periodically. Codes issued on other instances are picked up
+ * by a short-interval refresh of the codes created since the previous one; until then, current-format codes whose
+ * embedded issuance second is past the refresh watermark are reported as possibly present, so a certificate
+ * issued elsewhere a moment ago still reaches the database. Until the first build completes every code is
+ * reported as possibly present.
+ */
+@Slf4j
+@Service
+public class CertificateCodeFilter {
+
+    private final CertificateRepository certificateRepository;
+    private final CertificateCodeGenerator certificateCodeGenerator;
+    private final TransactionTemplate readOnlyTransaction;
+    private final double falsePositiveRate;
+    private final long minExpectedInsertions;
+    private final Duration refreshOverlap;
+
+    private volatile BloomFilter current;
+    private volatile BloomFilter building;
+    private volatile LocalDateTime syncedSince;
+
+    private final Counter negatives;
+    private final Counter positives;
+    private final Counter falsePositives;
+
+    public CertificateCodeFilter(CertificateRepository certificateRepository,
+                                 CertificateCodeGenerator certificateCodeGenerator,
+                                 TransactionTemplate transactionTemplate,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.certificates.code-filter.false-positive-rate:0.01}") double falsePositiveRate,
+                                 @Value("${app.certificates.code-filter.min-expected-insertions:10000}") long minExpectedInsertions,
+                                 @Value("${app.certificates.code-filter.refresh-overlap:5m}") Duration refreshOverlap) {
+        this.certificateRepository = certificateRepository;
+        this.certificateCodeGenerator = certificateCodeGenerator;
+        this.readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransaction.setReadOnly(true);
+        this.falsePositiveRate = falsePositiveRate;
+        this.minExpectedInsertions = minExpectedInsertions;
+        this.refreshOverlap = refreshOverlap;
+
+        this.negatives = lookupCounter(meterRegistry, "negative");
+        this.positives = lookupCounter(meterRegistry, "positive");
+        this.falsePositives = lookupCounter(meterRegistry, "false_positive");
+        Gauge.builder("certificate.code.filter.false.positive.rate", this, CertificateCodeFilter::observedFalsePositiveRate)
+            .description("Share of absent codes the filter let through to the database")
+            .register(meterRegistry);
+        Gauge.builder("certificate.code.filter.expected.false.positive.rate", this, filter -> {
+                BloomFilter filterNow = filter.current;
+                return filterNow != null ? filterNow.expectedFalsePositiveRate() : Double.NaN;
+            })
+            .description("Theoretical false positive rate for the current number of codes")
+            .register(meterRegistry);
+    }
+
+    /**
+     * False only when the code was definitely never issued
+     */
+    public boolean mightContain(String certificateCode) {
+        BloomFilter filter = current;
+        if (filter == null) {
+            return true;
+        }
+        boolean mightContain = filter.mightContain(certificateCode) || issuedSinceLastSync(certificateCode);
+        (mightContain ? positives : negatives).increment();
+        return mightContain;
+    }
+
+    /**
+     * Record that a code the filter let through was not found in the database
+     */
+    public void recordFalsePositive() {
+        falsePositives.increment();
+    }
+
+    /**
+     * Add a newly issued code; call after the certificate row is committed
+     */
+    public void add(String certificateCode) {
+        BloomFilter filter;
+        do {
+            filter = current;
+            if (filter != null) {
+                filter.put(certificateCode);
+            }
+            BloomFilter next = building;
+            if (next != null) {
+                next.put(certificateCode);
+            }
+        } while (filter != current);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        rebuild();
+    }
+
+    /**
+     * Rebuild the filter from the database, sized for the current number of codes, and swap it in
+     */
+    @Scheduled(initialDelayString = "${app.certificates.code-filter.rebuild-ms:21600000}",
+               fixedDelayString = "${app.certificates.code-filter.rebuild-ms:21600000}")
+    public synchronized void rebuild() {
+        long startedAt = System.currentTimeMillis();
+        LocalDateTime since = LocalDateTime.now().minus(refreshOverlap);
+        try {
+            long count = certificateRepository.count();
+            BloomFilter next = new BloomFilter(Math.max(minExpectedInsertions, count * 2), falsePositiveRate);
+            building = next;
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<String> codes = certificateRepository.streamAllCertificateCodes()) {
+                    codes.forEach(next::put);
+                }
+            });
+            current = next;
+            syncedSince = since;
+            log.info("Certificate code filter built with {} codes ({} bits, {} hashes) in {} ms",
+                next.insertions(), next.bitSize(), next.hashCount(), System.currentTimeMillis() - startedAt);
+        } catch (RuntimeException e) {
+            log.error("Could not build certificate code filter", e);
+        } finally {
+            building = null;
+        }
+    }
+
+    /**
+     * Add the codes created since the previous build or refresh, so certificates issued on other instances
+     * verify within one interval instead of at the next rebuild. The window overlaps the previous one to cover
+     * clock skew between instances and rows committed after their created_at.
+     */
+    @Scheduled(initialDelayString = "${app.certificates.code-filter.refresh-ms:30000}",
+               fixedDelayString = "${app.certificates.code-filter.refresh-ms:30000}")
+    public synchronized void refresh() {
+        LocalDateTime since = syncedSince;
+        if (current == null || since == null) {
+            return;
+        }
+        LocalDateTime nextSince = LocalDateTime.now().minus(refreshOverlap);
+        try {
+            List<String> codes = certificateRepository.findCertificateCodesCreatedSince(since);
+            codes.forEach(this::add);
+            syncedSince = nextSince;
+            log.debug("Certificate code filter refreshed with {} codes created since {}", codes.size(), since);
+        } catch (RuntimeException e) {
+            log.warn("Could not refresh certificate code filter: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Whether the code's embedded issuance second is not yet covered by the last build or refresh
+     */
+    private boolean issuedSinceLastSync(String certificateCode) {
+        LocalDateTime since = syncedSince;
+        if (since == null) {
+            return true;
+        }
+        Instant watermark = since.atZone(ZoneId.systemDefault()).toInstant();
+        return certificateCodeGenerator.issuedAt(certificateCode)
+            .map(issuedAt -> !issuedAt.isBefore(watermark))
+            .orElse(false);
+    }
+
+    private double observedFalsePositiveRate() {
+        double falsePositiveCount = falsePositives.count();
+        double absent = negatives.count() + falsePositiveCount;
+        return absent == 0 ? 0 : falsePositiveCount / absent;
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("certificate.code.filter.lookups")
+            .description("Public certificate code lookups checked against the code filter")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Lock-free Bloom filter over an AtomicLongArray, using double hashing of two 64-bit hashes
+     */
+    private static final class BloomFilter {
+        private final AtomicLongArray bits;
+        private final long bitSize;
+        private final int hashCount;
+        private final AtomicLong insertions = new AtomicLong();
+
+        BloomFilter(long expectedInsertions, double falsePositiveRate) {
+            long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            int words = (int) Math.max(1, (optimalBits + 63) / 64);
+            this.bits = new AtomicLongArray(words);
+            this.bitSize = (long) words * 64;
+            this.hashCount = (int) Math.max(1, Math.round((double) bitSize / expectedInsertions * Math.log(2)));
+        }
+
+        void put(String value) {
+            long hash1 = hash(value, 0xcbf29ce484222325L);
+            long hash2 = hash(value, 0x84222325cbf29ce4L) | 1;
+            for (int i = 0; i < hashCount; i++) {
+                long index = Math.floorMod(hash1 + i * hash2, bitSize);
+                int word = (int) (index >>> 6);
+                long mask = 1L << index;
+                long previous;
+                do {
+                    previous = bits.get(word);
+                    if ((previous & mask) != 0) {
+                        break;
+                    }
+                } while (!bits.compareAndSet(word, previous, previous | mask));
+            }
+            insertions.incrementAndGet();
+        }
+
+        boolean mightContain(String value) {
+            long hash1 = hash(value, 0xcbf29ce484222325L);
+            long hash2 = hash(value, 0x84222325cbf29ce4L) | 1;
+            for (int i = 0; i < hashCount; i++) {
+                long index = Math.floorMod(hash1 + i * hash2, bitSize);
+                if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        double expectedFalsePositiveRate() {
+            return Math.pow(1 - Math.exp(-hashCount * (double) insertions.get() / bitSize), hashCount);
+        }
+
+        long insertions() {
+            return insertions.get();
+        }
+
+        long bitSize() {
+            return bitSize;
+        }
+
+        int hashCount() {
+            return hashCount;
+        }
+
+        /**
+         * FNV-1a over the UTF-16 code units with a seed, finished with the murmur3 64-bit mixer
+         */
+        private static long hash(String value, long seed) {
+            long hash = seed;
+            for (int i = 0; i < value.length(); i++) {
+                hash ^= value.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            hash ^= hash >>> 33;
+            hash *= 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            hash *= 0xc4ceb9fe1a85ec53L;
+            hash ^= hash >>> 33;
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.asecapt.app.users.domain.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.text.Normalizer;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Generates certificate codes that are unique without a database round trip or SecureRandom:
+ * CERT-{program}-{last 4 of DNI}-{yyyyMMdd}-{id}{check}, where id is 11 Crockford base32 characters of
+ * (seconds since 2024-01-01 | node ID | per-second sequence) and check is the Crockford mod-37 check symbol.
+ * Each app instance must have a distinct app.certificates.code.node-id (0-1023); startup fails when it is unset,
+ * since a derived ID could collide between instances and repeat codes.
+ */
+@Slf4j
+@Service
+public class CertificateCodeGenerator {
+
+    private static final String ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ";
+    private static final String CHECK_ALPHABET = ALPHABET + "*~$=U";
+    private static final long EPOCH_SECONDS = Instant.parse("2024-01-01T00:00:00Z").getEpochSecond();
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE = (1L << NODE_BITS) - 1;
+    private static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+    private static final int ID_LENGTH = 11;
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private static final Pattern CODE_PATTERN = Pattern.compile(
+        "CERT-[A-Z0-9]{1,3}-[A-Z0-9]{1,4}-\\d{8}-([0-9A-HJKMNP-TV-Z]{" + ID_LENGTH + "})([0-9A-HJKMNP-TV-Z*~$=U])");
+    /** Codes issued before this generator: six uppercase hex characters from a UUID */
+    private static final Pattern LEGACY_CODE_PATTERN = Pattern.compile("CERT-.{0,3}-.{0,4}-\\d{8}-[0-9A-F]{6}");
+
+    private final long nodeId;
+    private long lastSecond = -1;
+    private long sequence;
+
+    public CertificateCodeGenerator(@Value("${app.certificates.code.node-id:-1}") long nodeId) {
+        if (nodeId < 0) {
+            throw new IllegalStateException("app.certificates.code.node-id (CERTIFICATE_NODE_ID) must be set to a value " +
+                "between 0 and " + MAX_NODE + " that is distinct for each app instance");
+        }
+        if (nodeId > MAX_NODE) {
+            throw new IllegalArgumentException("app.certificates.code.node-id must be between 0 and " + MAX_NODE);
+        }
+        this.nodeId = nodeId;
+        log.info("Certificate code generator node ID {}", this.nodeId);
+    }
+
+    /**
+     * Generate a new code for a program title and student document number
+     */
+    public String generate(String programTitle, String documentNumber) {
+        String programCode = sanitize(programTitle, 3, true);
+        String studentCode = sanitize(documentNumber, 4, false);
+        String date = LocalDate.now().format(DATE_FORMAT);
+        long id = nextId();
+        return "CERT-" + programCode + "-" + studentCode + "-" + date + "-" + encode(id) + CHECK_ALPHABET.charAt((int) (id % 37));
+    }
+
+    /**
+     * Whether a code has the shape (and, for current codes, the check symbol) of an issued code
+     */
+    public boolean isWellFormed(String certificateCode) {
+        if (certificateCode == null) {
+            return false;
+        }
+        var matcher = CODE_PATTERN.matcher(certificateCode);
+        if (matcher.matches()) {
+            long id = decode(matcher.group(1));
+            return id >= 0 && CHECK_ALPHABET.charAt((int) (id % 37)) == matcher.group(2).charAt(0);
+        }
+        return LEGACY_CODE_PATTERN.matcher(certificateCode).matches();
+    }
+
+    /**
+     * Issuance second embedded in a current-format code; empty for legacy or malformed codes
+     */
+    public Optional<Instant> issuedAt(String certificateCode) {
+        if (certificateCode == null) {
+            return Optional.empty();
+        }
+        var matcher = CODE_PATTERN.matcher(certificateCode);
+        if (!matcher.matches()) {
+            return Optional.empty();
+        }
+        long id = decode(matcher.group(1));
+        return Optional.of(Instant.ofEpochSecond(EPOCH_SECONDS + (id >>> (NODE_BITS + SEQUENCE_BITS))));
+    }
+
+    /**
+     * Next (second, node, sequence) value; never repeats on this node, even if the clock goes backwards
+     */
+    private synchronized long nextId() {
+        long second = Math.max(Instant.now().getEpochSecond() - EPOCH_SECONDS, lastSecond);
+        if (second == lastSecond) {
+            if (sequence == MAX_SEQUENCE) {
+                // Sequence exhausted for this second: borrow the next one
+                second++;
+                sequence = 0;
+            } else {
+                sequence++;
+            }
+        } else {
+            sequence = 0;
+        }
+        lastSecond = second;
+        return (second << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+    }
+
+    private static String encode(long value) {
+        char[] chars = new char[ID_LENGTH];
+        for (int i = ID_LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET.charAt((int) (value & 31));
+            value >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    private static long decode(String encoded) {
+        long value = 0;
+        for (int i = 0; i < encoded.length(); i++) {
+            value = (value << 5) | ALPHABET.indexOf(encoded.charAt(i));
+        }
+        return value;
+    }
+
+    /**
+     * Uppercase ASCII letters/digits only: the first characters of the title or the last of the document number
+     */
+    private static String sanitize(String value, int length, boolean leading) {
+        String ascii = value == null ? "" : Normalizer.normalize(value, Normalizer.Form.NFD)
+            .replaceAll("[^A-Za-z0-9]", "")
+            .toUpperCase();
+        if (ascii.isEmpty()) {
+            return "X";
+        }
+        return leading
+            ? ascii.substring(0, Math.min(length, ascii.length()))
+            : ascii.substring(Math.max(0, ascii.length() - length));
+    }
+}
@@ -0,0 +1,69 @@
+package com.asecapt.app.users.domain.services;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * An open handle on a stored certificate/QR object (or a byte range of it), with the metadata
+ * needed to stream it to an HTTP response without buffering the whole object on the heap.
+ */
+public class CertificateFileStream implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream inputStream;
+    private final String contentType;
+    private final Long contentLength;
+    private final String contentRange;
+
+    /**
+     * @param inputStream   the object body (or the requested range of it)
+     * @param contentType   stored content type, may be null
+     * @param contentLength number of bytes that will be streamed, may be null when unknown
+     * @param contentRange  value for the Content-Range header when this is a partial response, otherwise null
+     */
+    public CertificateFileStream(InputStream inputStream, String contentType, Long contentLength, String contentRange) {
+        this.inputStream = inputStream;
+        this.contentType = contentType;
+        this.contentLength = contentLength;
+        this.contentRange = contentRange;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public Long getContentLength() {
+        return contentLength;
+    }
+
+    public String getContentRange() {
+        return contentRange;
+    }
+
+    public boolean isPartial() {
+        return contentRange != null;
+    }
+
+    /**
+     * Copy the object body to the given output with a fixed-size buffer
+     * @return the number of bytes written
+     */
+    public long transferTo(OutputStream out) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long total = 0;
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+            total += read;
+        }
+        return total;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inputStream.close();
+    }
+}
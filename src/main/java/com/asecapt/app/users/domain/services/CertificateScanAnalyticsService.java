@@ -0,0 +1,133 @@
+package com.asecapt.app.users.domain.services;
+
+import com.asecapt.app.users.application.dto.ScanCountDto;
+import com.asecapt.app.users.application.dto.ScanTotalDto;
+import com.asecapt.app.users.domain.entities.CertificateScanRollup;
+import com.asecapt.app.users.domain.entities.CertificateValidation;
+import com.asecapt.app.users.domain.repository.CertificateScanRollupRepository;
+import com.asecapt.app.users.domain.repository.CertificateValidationRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Certificate scan analytics over hourly/daily rollups maintained incrementally by the audit writer,
+ * so dashboards read O(buckets) rows instead of scanning certificate_validation.
+ */
+@Service
+public class CertificateScanAnalyticsService {
+
+    private static final String UPSERT_SQL =
+        "INSERT INTO certificate_scan_rollup (granularity, bucket_start, certificate_id, validation_result, program_id, scan_count) " +
+        "VALUES (?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE scan_count = scan_count + VALUES(scan_count)";
+    private static final int MAX_PAGE_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CertificateScanRollupRepository certificateScanRollupRepository;
+    private final CertificateValidationRepository certificateValidationRepository;
+
+    public CertificateScanAnalyticsService(JdbcTemplate jdbcTemplate,
+                                           CertificateScanRollupRepository certificateScanRollupRepository,
+                                           CertificateValidationRepository certificateValidationRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.certificateScanRollupRepository = certificateScanRollupRepository;
+        this.certificateValidationRepository = certificateValidationRepository;
+    }
+
+    /**
+     * Add a flushed batch of validation events to the hourly and daily rollups.
+     * Must run in the same transaction as the audit insert so the rollups never drift from the log.
+     */
+    public void rollUp(List<CertificateValidationWriter.ValidationEvent> events) {
+        Map<RollupKey, Long> counts = new HashMap<>();
+        for (CertificateValidationWriter.ValidationEvent event : events) {
+            int certificateId = event.certificateId() != null ? event.certificateId() : 0;
+            LocalDateTime hour = event.validatedAt().truncatedTo(ChronoUnit.HOURS);
+            counts.merge(new RollupKey(CertificateScanRollup.HOUR, hour, certificateId, event.validationResult()), 1L, Long::sum);
+            counts.merge(new RollupKey(CertificateScanRollup.DAY, hour.truncatedTo(ChronoUnit.DAYS), certificateId, event.validationResult()), 1L, Long::sum);
+        }
+
+        Map<Integer, Integer> programIds = findProgramIds(counts.keySet().stream()
+            .map(RollupKey::certificateId)
+            .filter(id -> id != 0)
+            .collect(Collectors.toSet()));
+
+        List<Map.Entry<RollupKey, Long>> rows = new ArrayList<>(counts.entrySet());
+        jdbcTemplate.batchUpdate(UPSERT_SQL, rows, rows.size(), (ps, row) -> {
+            RollupKey key = row.getKey();
+            ps.setString(1, key.granularity());
+            ps.setTimestamp(2, Timestamp.valueOf(key.bucketStart()));
+            ps.setInt(3, key.certificateId());
+            ps.setString(4, key.validationResult());
+            ps.setInt(5, programIds.getOrDefault(key.certificateId(), 0));
+            ps.setLong(6, row.getValue());
+        });
+    }
+
+    /**
+     * Scan counts per bucket and result in [from, to), optionally for one certificate or program
+     */
+    @Transactional(readOnly = true)
+    public List<ScanCountDto> getScanSeries(String granularity, LocalDateTime from, LocalDateTime to,
+                                            Integer certificateId, Integer programId) {
+        return certificateScanRollupRepository.findScanSeries(granularity, from, to, certificateId, programId);
+    }
+
+    /**
+     * Most scanned certificates in [from, to)
+     */
+    @Transactional(readOnly = true)
+    public List<ScanTotalDto> getTopCertificates(LocalDateTime from, LocalDateTime to, int limit) {
+        return certificateScanRollupRepository.findTopCertificates(from, to, PageRequest.of(0, clamp(limit)));
+    }
+
+    /**
+     * Scans per program in [from, to)
+     */
+    @Transactional(readOnly = true)
+    public List<ScanTotalDto> getProgramTotals(LocalDateTime from, LocalDateTime to) {
+        return certificateScanRollupRepository.findProgramTotals(from, to);
+    }
+
+    /**
+     * Keyset page of the raw audit log, newest first; pass the last ID of a page as beforeId to get the next one
+     */
+    @Transactional(readOnly = true)
+    public List<CertificateValidation> getValidationLog(Integer beforeId, String validationResult, int limit) {
+        return certificateValidationRepository.findPageBefore(beforeId, validationResult, PageRequest.of(0, clamp(limit)));
+    }
+
+    private Map<Integer, Integer> findProgramIds(Set<Integer> certificateIds) {
+        if (certificateIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        String placeholders = String.join(",", Collections.nCopies(certificateIds.size(), "?"));
+        Map<Integer, Integer> programIds = new HashMap<>();
+        jdbcTemplate.query(
+            "SELECT c.id, e.program_id FROM certificates c JOIN enrollment e ON e.id = c.enrollment_id WHERE c.id IN (" + placeholders + ")",
+            rs -> {
+                programIds.put(rs.getInt(1), rs.getInt(2));
+            },
+            certificateIds.toArray());
+        return programIds;
+    }
+
+    private static int clamp(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+
+    private record RollupKey(String granularity, LocalDateTime bucketStart, int certificateId, String validationResult) {
+    }
+}
@@ -1,26 +1,55 @@
 package com.asecapt.app.users.domain.services;
 
+import com.asecapt.app.commons.util.CursorUtil;
+import com.asecapt.app.users.application.dto.CertificateListItemDto;
+import com.asecapt.app.users.application.dto.CertificateStoredKeysRow;
+import com.asecapt.app.users.application.dto.CertificateVerificationDto;
+import com.asecapt.app.users.application.dto.CursorPage;
+import com.asecapt.app.users.application.exception.StorageException;
 import com.asecapt.app.users.domain.entities.Certificate;
 import com.asecapt.app.users.domain.entities.Enrollment;
 import com.asecapt.app.users.domain.repository.EnrollmentRepository;
 import com.asecapt.app.users.infrastructure.repository.CertificateRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 @Service
 @Transactional
 public class CertificateService {
     
+    /** Minimum final grade required to issue a certificate */
+    public static final int MIN_PASSING_GRADE = 60;
+    
+    /** Minimum attendance percentage required to issue a certificate */
+    public static final int MIN_ATTENDANCE_PERCENTAGE = 80;
+    
+    /** Largest page served by the keyset listing */
+    private static final int MAX_PAGE_SIZE = 200;
+    
     @Autowired
     private CertificateRepository certificateRepository;
     
@@ -31,24 +60,173 @@ public class CertificateService {
     private QRCodeService qrCodeService;
     
     @Autowired
-    private S3CertificateService s3CertificateService;
+    private CertificateStorage certificateStorage;
     
     @Autowired
     private CourseInitialsService courseInitialsService;
     
+    @Autowired
+    private CertificateVerificationCache certificateVerificationCache;
+    
+    @Autowired
+    private CertificateTokenService certificateTokenService;
+    
+    @Autowired
+    private CertificateCodeFilter certificateCodeFilter;
+    
+    @Autowired
+    private CertificateCodeGenerator certificateCodeGenerator;
+    
+    @Autowired
+    private CertificateBlobService certificateBlobService;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    @Qualifier("certificateTaskExecutor")
+    private Executor certificateTaskExecutor;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
     @Value("${app.base-url:${APP_BASE_URL:http://localhost:8080}}")
     private String baseUrl;
     
+    /** When false the QR image is not stored at issuance; it is rendered on request from the certificate URL */
+    @Value("${app.certificates.qr.store-objects:true}")
+    private boolean storeQrObjects;
+    
     /**
-     * Upload and create a certificate for a completed enrollment
+     * Upload and create a certificate for a completed enrollment.
+     * Runs without a surrounding transaction: QR rendering and both uploads run concurrently on the
+     * certificate executor, and a transaction is only opened for the validation read and the final insert.
+     * The file is stored content-addressed, so identical bytes already stored are only referenced again.
+     * If any upload or the insert fails, the blob reference is released and the QR object deleted.
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Certificate createCertificate(Integer enrollmentId, MultipartFile file, LocalDateTime issuedDate) throws IOException {
         System.out.println("Creating certificate for enrollment: " + enrollmentId);
         
-        // Validate enrollment
-        Enrollment enrollment = enrollmentRepository.findById(enrollmentId)
-            .orElseThrow(() -> new RuntimeException("Enrollment not found"));
+        // Validate enrollment and resolve what the uploads need in a short read-only transaction
+        IssuanceContext context = stageTimer("validate").record(() -> readOnlyTransaction().execute(status -> {
+            Enrollment enrollment = enrollmentRepository.findById(enrollmentId)
+                .orElseThrow(() -> new RuntimeException("Enrollment not found"));
+            validateForIssuance(enrollment);
+            
+            // Get student DNI and course initials for storage organization
+            String courseInitials = courseInitialsService.generateCourseInitials(enrollment.getProgram().getTitle());
+            return new IssuanceContext(
+                generateCertificateCode(enrollment),
+                enrollment.getUser().getPerson().getDocumentNumber(),
+                courseInitials
+            );
+        }));
+        
+        String certificateCode = context.certificateCode();
+        LocalDateTime effectiveIssuedDate = issuedDate != null ? issuedDate : LocalDateTime.now();
+        
+        // Get file extension
+        String originalFilename = file.getOriginalFilename();
+        String fileExtension = "pdf"; // default
+        if (originalFilename != null && originalFilename.contains(".")) {
+            fileExtension = originalFilename.substring(originalFilename.lastIndexOf(".") + 1);
+        }
+        String extension = fileExtension;
+        
+        // Upload certificate and render + upload QR code concurrently
+        CompletableFuture<CertificateBlobService.StoredBlob> certificateUpload = CompletableFuture.supplyAsync(() ->
+            stageTimer("upload_pdf").record(() -> storeFile(file, extension)),
+            certificateTaskExecutor);
+        
+        CompletableFuture<String> qrUpload = !storeQrObjects
+            ? CompletableFuture.completedFuture(null)
+            : CompletableFuture.supplyAsync(() ->
+                stageTimer("render_qr").record(() -> qrCodeService.generateQRCodeBytes(
+                    buildQRCodeUrl(certificateCode, context.dni(), context.courseInitials(), effectiveIssuedDate), certificateCode)),
+                certificateTaskExecutor)
+            .thenApplyAsync(qrCodeBytes ->
+                stageTimer("upload_qr").record(() -> certificateStorage.uploadQRCode(
+                    context.dni(), context.courseInitials(), certificateCode, qrCodeBytes)),
+                certificateTaskExecutor);
+        
+        CertificateBlobService.StoredBlob blob;
+        String qrKey;
+        try {
+            CompletableFuture.allOf(certificateUpload, qrUpload).join();
+            blob = certificateUpload.join();
+            qrKey = qrUpload.join();
+        } catch (CompletionException e) {
+            deleteUploadedQuietly(certificateUpload, qrUpload);
+            throw unwrap(e);
+        }
+        
+        // Persist the certificate in its own short transaction
+        Certificate certificate;
+        try {
+            certificate = stageTimer("persist").record(() -> transactionTemplate.execute(status -> {
+                // Lock the enrollment and re-check: another request or a batch may have issued it meanwhile
+                Enrollment enrollment = enrollmentRepository.findByIdForUpdate(enrollmentId)
+                    .orElseThrow(() -> new RuntimeException("Enrollment not found"));
+                if (certificateRepository.existsByEnrollmentIdAndIsActiveTrue(enrollmentId)) {
+                    throw new RuntimeException("Certificate already exists for this enrollment");
+                }
+                
+                Certificate newCertificate = new Certificate(
+                    certificateCode,
+                    enrollment,
+                    blob.storageKey(),
+                    generateFileName(context.courseInitials(), certificateCode, extension),
+                    effectiveIssuedDate
+                );
+                newCertificate.setQrCodePath(qrKey);
+                newCertificate.setContentHash(blob.contentHash());
+                
+                return certificateRepository.save(newCertificate);
+            }));
+        } catch (RuntimeException e) {
+            deleteUploadedQuietly(certificateUpload, qrUpload);
+            throw e;
+        }
+        certificateCodeFilter.add(certificateCode);
+        
+        System.out.println("✅ Certificate created successfully: " + certificate.getCertificateCode());
+        System.out.println("📁 Certificate key: " + blob.storageKey() + (blob.deduplicated() ? " (deduplicated)" : ""));
+        if (qrKey != null) {
+            System.out.println("📱 QR Code key: " + qrKey);
+        }
         
+        return certificate;
+    }
+    
+    /**
+     * Store the uploaded file as a blob, streaming it from the multipart part when it is large
+     */
+    private CertificateBlobService.StoredBlob storeFile(MultipartFile file, String extension) {
+        try {
+            return certificateBlobService.store(file, extension);
+        } catch (IOException e) {
+            throw new StorageException("Error reading uploaded certificate file", e);
+        }
+    }
+    
+    /**
+     * Check that an enrollment can receive a certificate (completed, passing grade and attendance, none issued yet)
+     */
+    private void validateForIssuance(Enrollment enrollment) {
+        validateEligibility(enrollment);
+        
+        // Check if certificate already exists
+        if (certificateRepository.existsByEnrollmentIdAndIsActiveTrue(enrollment.getId())) {
+            throw new RuntimeException("Certificate already exists for this enrollment");
+        }
+    }
+    
+    /**
+     * Check the enrollment status, grade and attendance requirements (no database access)
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public void validateEligibility(Enrollment enrollment) {
         if (!"completed".equals(enrollment.getStatus())) {
             throw new RuntimeException("Certificate can only be created for completed enrollments");
         }
@@ -63,75 +241,69 @@ public class CertificateService {
         }
         
         // Additional validation for minimum passing requirements
-        if (enrollment.getFinalGrade().intValue() < 60) {
-            throw new RuntimeException("Cannot create certificate: Student must have a passing grade (minimum 60)");
+        if (enrollment.getFinalGrade().intValue() < MIN_PASSING_GRADE) {
+            throw new RuntimeException("Cannot create certificate: Student must have a passing grade (minimum " + MIN_PASSING_GRADE + ")");
         }
         
-        if (enrollment.getAttendancePercentage().intValue() < 80) {
-            throw new RuntimeException("Cannot create certificate: Student must have minimum 80% attendance");
+        if (enrollment.getAttendancePercentage().intValue() < MIN_ATTENDANCE_PERCENTAGE) {
+            throw new RuntimeException("Cannot create certificate: Student must have minimum " + MIN_ATTENDANCE_PERCENTAGE + "% attendance");
         }
-        
-        // Check if certificate already exists
-        if (certificateRepository.existsByEnrollmentIdAndIsActiveTrue(enrollmentId)) {
-            throw new RuntimeException("Certificate already exists for this enrollment");
+    }
+    
+    /**
+     * Compensate a failed issuance by releasing the blob reference and deleting the QR object, if they were stored
+     */
+    private void deleteUploadedQuietly(CompletableFuture<CertificateBlobService.StoredBlob> certificateUpload,
+                                       CompletableFuture<String> qrUpload) {
+        try {
+            certificateBlobService.release(certificateUpload.join().contentHash());
+        } catch (CompletionException | CancellationException e) {
+            // nothing was stored
+        } catch (RuntimeException e) {
+            System.err.println("Could not release certificate blob: " + e.getMessage());
         }
         
-        // Generate unique certificate code
-        String certificateCode = generateCertificateCode(enrollment);
-        
-        // Get student DNI and course initials for S3 organization
-        String dni = enrollment.getUser().getPerson().getDocumentNumber();
-        String courseTitle = enrollment.getProgram().getTitle();
-        String courseInitials = courseInitialsService.generateCourseInitials(courseTitle);
-        
-        // Get file extension
-        String originalFilename = file.getOriginalFilename();
-        String fileExtension = "pdf"; // default
-        if (originalFilename != null && originalFilename.contains(".")) {
-            fileExtension = originalFilename.substring(originalFilename.lastIndexOf(".") + 1);
+        String qrKey;
+        try {
+            qrKey = qrUpload.join();
+        } catch (CompletionException | CancellationException e) {
+            return;
         }
-        
-        // Upload certificate to S3
-        String certificateS3Key = s3CertificateService.uploadCertificate(
-            dni, 
-            courseInitials, 
-            certificateCode, 
-            file.getBytes(), 
-            fileExtension
-        );
-        
-        // Generate QR code and upload to S3
-        byte[] qrCodeBytes = qrCodeService.generateQRCodeBytes(
-            buildCertificateUrl(certificateCode), 
-            certificateCode
-        );
-        
-        String qrS3Key = s3CertificateService.uploadQRCode(
-            dni, 
-            courseInitials, 
-            certificateCode, 
-            qrCodeBytes
-        );
-        
-        // Create certificate entity with S3 paths
-        Certificate certificate = new Certificate(
-            certificateCode, 
-            enrollment, 
-            certificateS3Key,  // S3 key instead of local path
-            generateFileName(courseInitials, certificateCode, fileExtension), 
-            issuedDate != null ? issuedDate : LocalDateTime.now()
-        );
-        
-        certificate.setQrCodePath(qrS3Key); // S3 key for QR code
-        
-        // Save certificate
-        certificate = certificateRepository.save(certificate);
-        
-        System.out.println("✅ Certificate created successfully with S3 storage: " + certificate.getCertificateCode());
-        System.out.println("📁 Certificate S3 Key: " + certificateS3Key);
-        System.out.println("📱 QR Code S3 Key: " + qrS3Key);
-        
-        return certificate;
+        if (qrKey == null) {
+            return;
+        }
+        try {
+            certificateStorage.deleteFile(qrKey);
+        } catch (RuntimeException e) {
+            System.err.println("Could not delete orphan certificate object " + qrKey + ": " + e.getMessage());
+        }
+    }
+    
+    private static RuntimeException unwrap(CompletionException e) {
+        Throwable cause = e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        return new StorageException("Error storing certificate files", cause);
+    }
+    
+    private Timer stageTimer(String stage) {
+        return Timer.builder("certificate.issuance")
+            .description("Duration of each certificate issuance stage")
+            .tag("stage", stage)
+            .register(meterRegistry);
+    }
+    
+    private TransactionTemplate readOnlyTransaction() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnly.setReadOnly(true);
+        return readOnly;
+    }
+    
+    /**
+     * Values resolved from the enrollment before the uploads start
+     */
+    private record IssuanceContext(String certificateCode, String dni, String courseInitials) {
     }
     
     /**
@@ -162,6 +334,29 @@ public class CertificateService {
         return certificateRepository.findByProgramId(programId);
     }
     
+    /**
+     * Keyset page of active certificates, newest first, filtered by program, student document and issue date range.
+     * Fetches one extra row to know whether a next page exists.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<CertificateListItemDto> getCertificatePage(Integer programId, String documentNumber,
+                                                                 LocalDateTime issuedFrom, LocalDateTime issuedTo,
+                                                                 String cursor, int limit) {
+        CursorUtil.Cursor position = CursorUtil.decode(cursor);
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<CertificateListItemDto> rows = certificateRepository.findPage(programId, documentNumber, issuedFrom, issuedTo,
+            position != null ? position.timestamp() : null,
+            position != null ? position.id() : null,
+            PageRequest.of(0, pageSize + 1));
+        
+        if (rows.size() <= pageSize) {
+            return new CursorPage<>(rows, null);
+        }
+        List<CertificateListItemDto> page = rows.subList(0, pageSize);
+        CertificateListItemDto last = page.get(pageSize - 1);
+        return new CursorPage<>(page, CursorUtil.encode(last.issuedDate(), last.id()));
+    }
+    
     /**
      * Get all active certificates
      */
@@ -170,14 +365,40 @@ public class CertificateService {
     }
     
     /**
-     * Delete certificate (soft delete)
+     * Delete certificate (soft delete); its file blob becomes collectable once no active certificate references it
      */
     public void deleteCertificate(Integer certificateId) {
         Certificate certificate = certificateRepository.findById(certificateId)
             .orElseThrow(() -> new RuntimeException("Certificate not found"));
+        boolean wasActive = Boolean.TRUE.equals(certificate.getIsActive());
         
         certificate.setIsActive(false);
         certificateRepository.save(certificate);
+        if (wasActive) {
+            certificateBlobService.release(certificate.getContentHash());
+        }
+        certificateVerificationCache.invalidate(certificate.getCertificateCode());
+        certificateTokenService.revoke(certificate.getCertificateCode());
+    }
+    
+    /**
+     * Audit storage for active certificates: returns the stored keys (file or QR) that are missing.
+     * Only the keys are read, and storage is checked after that query's transaction has ended.
+     */
+    public List<String> findMissingStoredFiles() {
+        List<String> keys = new ArrayList<>();
+        for (CertificateStoredKeysRow row : certificateRepository.findActiveStoredKeys()) {
+            keys.add(row.filePath());
+            if (row.qrCodePath() != null) {
+                keys.add(row.qrCodePath());
+            }
+        }
+        
+        return certificateStorage.existsAll(keys).entrySet().stream()
+            .filter(entry -> !entry.getValue())
+            .map(Map.Entry::getKey)
+            .sorted()
+            .toList();
     }
     
     /**
@@ -194,28 +415,64 @@ public class CertificateService {
         return certificateRepository.findByStudentDocumentNumber(documentNumber);
     }
     
+    /**
+     * Get the public verification read model by certificate code
+     */
+    @Transactional(readOnly = true)
+    public Optional<CertificateVerificationDto> getVerificationByCode(String certificateCode) {
+        return certificateRepository.findVerificationByCertificateCode(certificateCode);
+    }
+    
+    /**
+     * Get the public verification read models of a student's active certificates by document number
+     */
+    @Transactional(readOnly = true)
+    public List<CertificateVerificationDto> getVerificationsByStudentDocument(String documentNumber) {
+        return certificateRepository.findVerificationsByStudentDocumentNumber(documentNumber);
+    }
+    
     /**
      * Generate unique certificate code
      */
-    private String generateCertificateCode(Enrollment enrollment) {
-        String programCode = enrollment.getProgram().getTitle().substring(0, 
-            Math.min(3, enrollment.getProgram().getTitle().length())).toUpperCase();
-        String studentCode = enrollment.getUser().getPerson().getDocumentNumber().substring(
-            Math.max(0, enrollment.getUser().getPerson().getDocumentNumber().length() - 4)
-        );
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
-        String uuid = UUID.randomUUID().toString().substring(0, 6).toUpperCase();
-        
-        return String.format("CERT-%s-%s-%s-%s", programCode, studentCode, timestamp, uuid);
+    String generateCertificateCode(Enrollment enrollment) {
+        return certificateCodeGenerator.generate(enrollment.getProgram().getTitle(),
+            enrollment.getUser().getPerson().getDocumentNumber());
     }
     
     /**
      * Build certificate URL for QR code
      */
-    private String buildCertificateUrl(String certificateCode) {
+    public String buildCertificateUrl(String certificateCode) {
         return baseUrl + "/public/certificate/" + certificateCode;
     }
     
+    /**
+     * Build the URL encoded in the QR code: the certificate URL, plus a signed token when tokens are enabled
+     */
+    public String buildQRCodeUrl(String certificateCode, String documentNumber, String courseInitials, LocalDateTime issuedDate) {
+        String url = buildCertificateUrl(certificateCode);
+        if (!certificateTokenService.isEnabled()) {
+            return url;
+        }
+        return url + "?t=" + certificateTokenService.issue(certificateCode, documentNumber, courseInitials, issuedDate.toLocalDate());
+    }
+    
+    /**
+     * Build the URL encoded in the QR code of an existing certificate
+     */
+    @Transactional(readOnly = true)
+    public String buildQRCodeUrl(Certificate certificate) {
+        if (!certificateTokenService.isEnabled()) {
+            return buildCertificateUrl(certificate.getCertificateCode());
+        }
+        Enrollment enrollment = enrollmentRepository.findById(certificate.getEnrollment().getId())
+            .orElseThrow(() -> new RuntimeException("Enrollment not found"));
+        return buildQRCodeUrl(certificate.getCertificateCode(),
+            enrollment.getUser().getPerson().getDocumentNumber(),
+            courseInitialsService.generateCourseInitials(enrollment.getProgram().getTitle()),
+            certificate.getIssuedDate());
+    }
+    
     /**
      * Update certificate (for updating issue date, etc.)
      */
@@ -225,22 +482,89 @@ public class CertificateService {
         
         // Update issued date if provided
         if (request.getIssuedDate() != null && !request.getIssuedDate().trim().isEmpty()) {
+            LocalDateTime issuedDate;
             try {
-                LocalDateTime issuedDate = LocalDateTime.parse(request.getIssuedDate() + "T00:00:00");
-                certificate.setIssuedDate(issuedDate);
+                issuedDate = LocalDateTime.parse(request.getIssuedDate() + "T00:00:00");
             } catch (Exception e) {
                 throw new RuntimeException("Invalid date format. Expected YYYY-MM-DD");
             }
+            return changeIssuedDate(certificate, issuedDate);
         }
         
-        return certificateRepository.save(certificate);
+        Certificate updatedCertificate = certificateRepository.save(certificate);
+        certificateVerificationCache.invalidate(updatedCertificate.getCertificateCode());
+        
+        return updatedCertificate;
+    }
+    
+    /**
+     * Change the issued date of a certificate. Signed tokens carry the issued date, so the tokens signed with
+     * the previous date are superseded and a stored QR image is re-rendered with a token for the new date.
+     * The QR is rendered and uploaded only after the surrounding transaction commits, so a rolled-back change
+     * never leaves a stored QR signed for a date that was not saved.
+     */
+    public Certificate changeIssuedDate(Certificate certificate, LocalDateTime issuedDate) {
+        LocalDate previousDate = certificate.getIssuedDate() != null ? certificate.getIssuedDate().toLocalDate() : null;
+        boolean dateChanged = previousDate != null && !previousDate.equals(issuedDate.toLocalDate());
+        
+        Certificate updatedCertificate = transactionTemplate.execute(status -> {
+            certificate.setIssuedDate(issuedDate);
+            Certificate saved = certificateRepository.save(certificate);
+            if (dateChanged) {
+                certificateTokenService.supersede(saved.getCertificateCode(), previousDate, issuedDate.toLocalDate());
+            }
+            return saved;
+        });
+        certificateVerificationCache.invalidate(updatedCertificate.getCertificateCode());
+        
+        if (dateChanged && certificateTokenService.isEnabled() && updatedCertificate.getQrCodePath() != null) {
+            Enrollment enrollment = enrollmentRepository.findById(updatedCertificate.getEnrollment().getId())
+                .orElseThrow(() -> new RuntimeException("Enrollment not found"));
+            String dni = enrollment.getUser().getPerson().getDocumentNumber();
+            String courseInitials = courseInitialsService.generateCourseInitials(enrollment.getProgram().getTitle());
+            Runnable reissue = () -> reissueStoredQRCode(updatedCertificate.getId(), updatedCertificate.getCertificateCode(),
+                updatedCertificate.getQrCodePath(), dni, courseInitials, issuedDate);
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        reissue.run();
+                    }
+                });
+            } else {
+                reissue.run();
+            }
+        }
+        return updatedCertificate;
+    }
+    
+    /**
+     * Re-render and overwrite the stored QR image of a certificate with its current QR URL; runs outside
+     * any transaction, the QR key is updated in a new one when it changed
+     */
+    private void reissueStoredQRCode(Integer certificateId, String certificateCode, String currentQrKey,
+                                     String dni, String courseInitials, LocalDateTime issuedDate) {
+        try {
+            byte[] qrCodeBytes = qrCodeService.generateQRCodeBytes(
+                buildQRCodeUrl(certificateCode, dni, courseInitials, issuedDate), certificateCode);
+            String qrKey = certificateStorage.uploadQRCode(dni, courseInitials, certificateCode, qrCodeBytes);
+            if (!qrKey.equals(currentQrKey)) {
+                TransactionTemplate requiresNew = new TransactionTemplate(transactionTemplate.getTransactionManager());
+                requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+                requiresNew.executeWithoutResult(status -> certificateRepository.updateQrCodePath(certificateId, qrKey));
+            }
+            System.out.println("Re-issued QR code for certificate " + certificateCode + " after issued date change");
+        } catch (RuntimeException e) {
+            // The stored QR now carries a superseded token; scanning it reports TOKEN_SUPERSEDED until re-rendered
+            System.err.println("Could not re-issue QR code for certificate " + certificateCode + ": " + e.getMessage());
+        }
     }
     
     /**
 
      * Generate file name for certificate
      */
-    private String generateFileName(String courseInitials, String certificateCode, String fileExtension) {
+    String generateFileName(String courseInitials, String certificateCode, String fileExtension) {
         return String.format("%s-%s.%s", courseInitials, certificateCode, fileExtension);
     }
 }
\ No newline at end of file
@@ -0,0 +1,78 @@
+package com.asecapt.app.users.domain.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Storage backend for certificate files and QR codes.
+ * Keys have the form certificates/{dni}/{courseInitials}_{certificateCode}[_QR].{ext}
+ * and are persisted as-is in the certificates table.
+ */
+public interface CertificateStorage {
+
+    String uploadCertificate(String dni, String courseInitials, String certificateCode,
+                             byte[] fileContent, String fileExtension);
+
+    /**
+     * Store a certificate file under its content-addressed key (blobs/{hash prefix}/{sha256}.{ext})
+     */
+    String uploadBlob(String contentHash, byte[] fileContent, String fileExtension);
+
+    /**
+     * Store a certificate file under its content-addressed key, streaming exactly size bytes from the input
+     * without holding the whole file in memory. The caller closes the stream.
+     */
+    String uploadBlob(String contentHash, InputStream content, long size, String fileExtension);
+
+    String uploadQRCode(String dni, String courseInitials, String certificateCode, byte[] qrContent);
+
+    byte[] downloadFile(String key) throws IOException;
+
+    /**
+     * Open a stored file as a stream, optionally restricted to a single "bytes=start-end" range.
+     * The caller must close the returned stream.
+     */
+    CertificateFileStream openFile(String key, String range) throws IOException;
+
+    void deleteFile(String key);
+
+    boolean fileExists(String key);
+
+    /**
+     * Check existence of many keys at once, grouped by directory prefix so a large group costs
+     * one bounded listing instead of one lookup per key
+     * @return key -> exists, for every requested key
+     */
+    Map<String, Boolean> existsAll(Collection<String> keys);
+
+    /**
+     * Directory prefix of a key including the trailing slash (certificates/{dni}/)
+     */
+    static String prefixOf(String key) {
+        return key.substring(0, key.lastIndexOf('/') + 1);
+    }
+
+    static String certificateKey(String dni, String courseInitials, String certificateCode, String extension) {
+        return String.format("certificates/%s/%s_%s.%s", dni, courseInitials, certificateCode, extension);
+    }
+
+    static String blobKey(String contentHash, String extension) {
+        return String.format("blobs/%s/%s.%s", contentHash.substring(0, 2), contentHash, extension);
+    }
+
+    static String qrCodeKey(String dni, String courseInitials, String certificateCode) {
+        return String.format("certificates/%s/%s_%s_QR.png", dni, courseInitials, certificateCode);
+    }
+
+    static String contentType(String extension) {
+        switch (extension.toLowerCase()) {
+            case "pdf": return "application/pdf";
+            case "png": return "image/png";
+            case "jpg":
+            case "jpeg": return "image/jpeg";
+            default: return "application/octet-stream";
+        }
+    }
+}
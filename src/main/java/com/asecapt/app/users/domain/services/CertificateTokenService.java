@@ -0,0 +1,264 @@
+package com.asecapt.app.users.domain.services;
+
+import com.asecapt.app.users.domain.entities.CertificateTokenRevocation;
+import com.asecapt.app.users.domain.repository.CertificateTokenRevocationRepository;
+import com.asecapt.app.users.infrastructure.repository.CertificateRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compact HMAC-SHA256 signed certificate tokens embedded in the QR URL, so a certificate can be
+ * authenticated without a database lookup. A token is base64url(payload) + "." + base64url(signature), where the
+ * payload is "1~code~documentHash~initials~issuedEpochDay" and the document hash is itself keyed, so the DNI
+ * cannot be brute-forced from a public token. Revocation is checked against in-memory sets of inactive codes and
+ * of tokens superseded by a change of issued date, refreshed periodically. Tokens are disabled unless
+ * app.certificates.token.secret is set.
+ */
+@Slf4j
+@Service
+public class CertificateTokenService {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final String VERSION = "1";
+    private static final String FIELD_SEPARATOR = "~";
+    private static final int SIGNATURE_LENGTH = 16;
+    private static final int DOCUMENT_HASH_LENGTH = 8;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final CertificateRepository certificateRepository;
+    private final CertificateTokenRevocationRepository certificateTokenRevocationRepository;
+    private final ThreadLocal<Mac> mac;
+
+    private volatile Set<String> revokedCodes;
+    /** Codes revoked on this node since the last refresh */
+    private final Set<String> recentlyRevoked = ConcurrentHashMap.newKeySet();
+    /** Superseded tokens as code~issuedEpochDay */
+    private volatile Set<String> supersededTokens = Set.of();
+    /** Tokens superseded on this node, with the System.nanoTime() of the commit, until a later refresh loads them */
+    private final Map<String, Long> recentlySuperseded = new ConcurrentHashMap<>();
+
+    public CertificateTokenService(CertificateRepository certificateRepository,
+                                   CertificateTokenRevocationRepository certificateTokenRevocationRepository,
+                                   @Value("${app.certificates.token.secret:}") String secret) {
+        this.certificateRepository = certificateRepository;
+        this.certificateTokenRevocationRepository = certificateTokenRevocationRepository;
+        if (secret == null || secret.isBlank()) {
+            this.mac = null;
+            log.info("Signed certificate tokens disabled (app.certificates.token.secret not set)");
+        } else {
+            SecretKeySpec key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+            this.mac = ThreadLocal.withInitial(() -> {
+                try {
+                    Mac instance = Mac.getInstance(ALGORITHM);
+                    instance.init(key);
+                    return instance;
+                } catch (GeneralSecurityException e) {
+                    throw new IllegalStateException("Cannot initialize " + ALGORITHM, e);
+                }
+            });
+        }
+    }
+
+    public boolean isEnabled() {
+        return mac != null;
+    }
+
+    /**
+     * Sign a token for a certificate
+     */
+    public String issue(String certificateCode, String documentNumber, String programInitials, LocalDate issuedDate) {
+        if (!isEnabled()) {
+            throw new IllegalStateException("Signed certificate tokens are disabled");
+        }
+        String payload = String.join(FIELD_SEPARATOR,
+            VERSION,
+            certificateCode,
+            ENCODER.encodeToString(documentHash(documentNumber)),
+            programInitials != null ? programInitials : "",
+            Long.toString(issuedDate.toEpochDay(), 36));
+        byte[] payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
+        return ENCODER.encodeToString(payloadBytes) + "." + ENCODER.encodeToString(sign(payloadBytes));
+    }
+
+    /**
+     * Validate a token's signature and decode its claims; empty when the token is malformed, forged or tokens are disabled
+     */
+    public Optional<TokenClaims> verify(String token) {
+        if (!isEnabled() || token == null) {
+            return Optional.empty();
+        }
+        int dot = token.indexOf('.');
+        if (dot <= 0) {
+            return Optional.empty();
+        }
+        try {
+            byte[] payloadBytes = DECODER.decode(token.substring(0, dot));
+            byte[] signature = DECODER.decode(token.substring(dot + 1));
+            if (!MessageDigest.isEqual(sign(payloadBytes), signature)) {
+                return Optional.empty();
+            }
+            String[] fields = new String(payloadBytes, StandardCharsets.UTF_8).split(FIELD_SEPARATOR, -1);
+            if (fields.length != 5 || !VERSION.equals(fields[0])) {
+                return Optional.empty();
+            }
+            return Optional.of(new TokenClaims(fields[1], DECODER.decode(fields[2]), fields[3],
+                LocalDate.ofEpochDay(Long.parseLong(fields[4], 36))));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Check that a token was issued for the given student document number
+     */
+    public boolean matchesDocument(TokenClaims claims, String documentNumber) {
+        return documentNumber != null && MessageDigest.isEqual(claims.documentHash(), documentHash(documentNumber));
+    }
+
+    /**
+     * Whether the certificate has been revoked, according to the in-memory revocation set
+     */
+    public boolean isRevoked(String certificateCode) {
+        Set<String> revoked = revokedCodes;
+        if (revoked == null) {
+            refreshRevocations();
+            revoked = revokedCodes;
+        }
+        return revoked.contains(certificateCode) || recentlyRevoked.contains(certificateCode);
+    }
+
+    /**
+     * Whether the token was superseded: its certificate's issued date changed after it was signed
+     */
+    public boolean isSuperseded(TokenClaims claims) {
+        if (revokedCodes == null) {
+            refreshRevocations();
+        }
+        String key = supersededKey(claims.certificateCode(), claims.issuedDate());
+        return supersededTokens.contains(key) || recentlySuperseded.containsKey(key);
+    }
+
+    /**
+     * Stop accepting the tokens of a certificate signed with its previous issued date, and accept again those of
+     * the new date if it had been superseded before (the date went back to an earlier value). Call in the
+     * transaction that changes the date. Applied on this node after commit, other nodes pick it up on their next refresh.
+     */
+    public void supersede(String certificateCode, LocalDate previousIssuedDate, LocalDate issuedDate) {
+        if (certificateCode == null || previousIssuedDate == null || previousIssuedDate.equals(issuedDate)) {
+            return;
+        }
+        certificateTokenRevocationRepository.save(
+            new CertificateTokenRevocation(certificateCode, previousIssuedDate, LocalDateTime.now()));
+        String key = supersededKey(certificateCode, previousIssuedDate);
+        String reinstatedKey = null;
+        if (issuedDate != null) {
+            certificateTokenRevocationRepository.deleteByCertificateCodeAndIssuedDate(certificateCode, issuedDate);
+            reinstatedKey = supersededKey(certificateCode, issuedDate);
+        }
+        String reinstated = reinstatedKey;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    applySupersede(key, reinstated);
+                }
+            });
+        } else {
+            applySupersede(key, reinstated);
+        }
+    }
+
+    private synchronized void applySupersede(String key, String reinstatedKey) {
+        recentlySuperseded.put(key, System.nanoTime());
+        if (reinstatedKey != null) {
+            recentlySuperseded.remove(reinstatedKey);
+            if (supersededTokens.contains(reinstatedKey)) {
+                Set<String> superseded = new HashSet<>(supersededTokens);
+                superseded.remove(reinstatedKey);
+                supersededTokens = superseded;
+            }
+        }
+    }
+
+    /**
+     * Mark a certificate as revoked on this node right away (after commit when inside a transaction);
+     * other nodes pick it up on their next refresh
+     */
+    public void revoke(String certificateCode) {
+        if (!isEnabled() || certificateCode == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    recentlyRevoked.add(certificateCode);
+                }
+            });
+        } else {
+            recentlyRevoked.add(certificateCode);
+        }
+    }
+
+    /**
+     * Reload the set of inactive certificate codes and of superseded tokens
+     */
+    @Scheduled(fixedDelayString = "${app.certificates.token.revocation-refresh-ms:60000}")
+    public synchronized void refreshRevocations() {
+        if (!isEnabled()) {
+            return;
+        }
+        long started = System.nanoTime();
+        Set<String> codes = new HashSet<>(certificateRepository.findInactiveCertificateCodes());
+        Set<String> superseded = new HashSet<>();
+        for (CertificateTokenRevocation revocation : certificateTokenRevocationRepository.findAll()) {
+            superseded.add(supersededKey(revocation.getCertificateCode(), revocation.getIssuedDate()));
+        }
+        supersededTokens = superseded;
+        revokedCodes = codes;
+        recentlyRevoked.removeIf(codes::contains);
+        // Committed before this refresh started, so the loaded set has them (or no longer has them, if reinstated since)
+        recentlySuperseded.values().removeIf(committed -> committed - started < 0);
+        log.debug("Certificate revocation set refreshed: {} revoked codes, {} superseded tokens", codes.size(), superseded.size());
+    }
+
+    private static String supersededKey(String certificateCode, LocalDate issuedDate) {
+        return certificateCode + FIELD_SEPARATOR + issuedDate.toEpochDay();
+    }
+
+    private byte[] documentHash(String documentNumber) {
+        byte[] data = ("dni:" + (documentNumber != null ? documentNumber.trim() : "")).getBytes(StandardCharsets.UTF_8);
+        return Arrays.copyOf(mac.get().doFinal(data), DOCUMENT_HASH_LENGTH);
+    }
+
+    private byte[] sign(byte[] payload) {
+        return Arrays.copyOf(mac.get().doFinal(payload), SIGNATURE_LENGTH);
+    }
+
+    /**
+     * Claims carried by a verified token
+     */
+    public record TokenClaims(String certificateCode, byte[] documentHash, String programInitials, LocalDate issuedDate) {
+    }
+}
@@ -0,0 +1,215 @@
+package com.asecapt.app.users.domain.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynchronous audit trail of public certificate scans. Request threads only enqueue an event into a bounded
+ * lock-free queue; a single writer thread serializes the responses and inserts them into certificate_validation
+ * with JDBC batches, every flush interval or as soon as a batch worth of events is waiting. The same transaction
+ * adds the batch to the scan rollups (see CertificateScanAnalyticsService). When the queue is
+ * full new events are dropped and counted rather than slowing down verification.
+ */
+@Slf4j
+@Service
+public class CertificateValidationWriter {
+
+    public static final String RESULT_VALID = "VALID";
+    public static final String RESULT_INACTIVE = "INACTIVE";
+    public static final String RESULT_NOT_FOUND = "NOT_FOUND";
+    public static final String RESULT_INVALID_TOKEN = "INVALID_TOKEN";
+    public static final String RESULT_ERROR = "ERROR";
+
+    private static final String INSERT_SQL =
+        "INSERT INTO certificate_validation (certificate_id, validation_token, validated_at, validator_ip, " +
+        "user_agent, validation_result, response_data) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final int TOKEN_LENGTH = 100;
+    private static final int IP_LENGTH = 45;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CertificateScanAnalyticsService certificateScanAnalyticsService;
+    private final ObjectMapper objectMapper;
+    private final int capacity;
+    private final int batchSize;
+
+    private final ConcurrentLinkedQueue<ValidationEvent> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ScheduledExecutorService flusher;
+
+    private final Counter written;
+    private final Counter dropped;
+    private final Counter failed;
+
+    public CertificateValidationWriter(JdbcTemplate jdbcTemplate,
+                                       TransactionTemplate transactionTemplate,
+                                       CertificateScanAnalyticsService certificateScanAnalyticsService,
+                                       ObjectMapper objectMapper,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${app.certificates.audit.queue-capacity:10000}") int capacity,
+                                       @Value("${app.certificates.audit.batch-size:200}") int batchSize,
+                                       @Value("${app.certificates.audit.flush-interval-ms:2000}") long flushIntervalMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.certificateScanAnalyticsService = certificateScanAnalyticsService;
+        this.objectMapper = objectMapper;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+
+        this.written = auditCounter(meterRegistry, "written");
+        this.dropped = auditCounter(meterRegistry, "dropped");
+        this.failed = auditCounter(meterRegistry, "failed");
+        Gauge.builder("certificate.validation.audit.queue.size", queued, AtomicInteger::get)
+            .description("Validation events waiting to be written")
+            .register(meterRegistry);
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "certificate-audit-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Enqueue a validation event; never blocks. The response object is serialized to JSON on the writer thread,
+     * so it must not be modified afterwards.
+     * @return false when the event was dropped because the queue is full
+     */
+    public boolean record(Integer certificateId, String certificateCode, String validatorIp, String userAgent,
+                          String validationResult, Object response) {
+        if (queued.incrementAndGet() > capacity) {
+            queued.decrementAndGet();
+            dropped.increment();
+            return false;
+        }
+        queue.offer(new ValidationEvent(certificateId, certificateCode, validatorIp, userAgent,
+            validationResult, response, LocalDateTime.now()));
+
+        if (queued.get() >= batchSize && flushRequested.compareAndSet(false, true)) {
+            try {
+                flusher.execute(this::flushQuietly);
+            } catch (RejectedExecutionException e) {
+                // shutting down: the final flush picks the event up
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Write everything currently queued, in batches
+     */
+    public void flush() {
+        flushRequested.set(false);
+        List<ValidationEvent> batch = new ArrayList<>(batchSize);
+        ValidationEvent event;
+        while ((event = queue.poll()) != null) {
+            queued.decrementAndGet();
+            batch.add(event);
+            if (batch.size() == batchSize) {
+                writeBatch(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            writeBatch(batch);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushQuietly();
+        log.info("Certificate validation audit writer stopped");
+    }
+
+    private void writeBatch(List<ValidationEvent> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, event) -> {
+                    if (event.certificateId() != null) {
+                        ps.setInt(1, event.certificateId());
+                    } else {
+                        ps.setNull(1, Types.INTEGER);
+                    }
+                    ps.setString(2, truncate(event.certificateCode() != null ? event.certificateCode() : "", TOKEN_LENGTH));
+                    ps.setTimestamp(3, Timestamp.valueOf(event.validatedAt()));
+                    ps.setString(4, truncate(event.validatorIp(), IP_LENGTH));
+                    ps.setString(5, event.userAgent());
+                    ps.setString(6, event.validationResult());
+                    ps.setString(7, toJson(event.response()));
+                });
+                certificateScanAnalyticsService.rollUp(batch);
+            });
+            written.increment(batch.size());
+        } catch (RuntimeException e) {
+            failed.increment(batch.size());
+            log.error("Could not write {} certificate validation events: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Certificate validation audit flush failed", e);
+        }
+    }
+
+    private String toJson(Object response) {
+        if (response == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private static String truncate(String value, int length) {
+        return value != null && value.length() > length ? value.substring(0, length) : value;
+    }
+
+    private static Counter auditCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("certificate.validation.audit.events")
+            .description("Certificate validation audit events by outcome")
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+
+    /**
+     * A public scan waiting to be written
+     */
+    public record ValidationEvent(Integer certificateId, String certificateCode, String validatorIp, String userAgent,
+                                  String validationResult, Object response, LocalDateTime validatedAt) {
+    }
+}
@@ -0,0 +1,73 @@
+package com.asecapt.app.users.domain.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Bounded, TTL-based cache of the public verification payload keyed by certificate code.
+ * Hit/miss/eviction statistics are published on actuator as cache.* metrics (cache=certificateVerification).
+ */
+@Service
+public class CertificateVerificationCache {
+
+    public static final String CACHE_NAME = "certificateVerification";
+
+    private final Cache<String, Map<String, Object>> cache;
+
+    public CertificateVerificationCache(
+            MeterRegistry meterRegistry,
+            @Value("${app.certificates.verification-cache.max-size:10000}") long maxSize,
+            @Value("${app.certificates.verification-cache.ttl:10m}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Get the cached payload for a certificate code, building it with the loader on a miss.
+     * A null payload from the loader is not cached.
+     */
+    public Map<String, Object> get(String certificateCode, Function<String, Map<String, Object>> loader) {
+        return cache.get(certificateCode, loader);
+    }
+
+    /**
+     * Drop the cached payload for a certificate code. Inside a transaction the eviction is deferred
+     * until after commit so a concurrent scan cannot re-cache the pre-update state.
+     */
+    public void invalidate(String certificateCode) {
+        if (certificateCode == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidate(certificateCode);
+                }
+            });
+        } else {
+            cache.invalidate(certificateCode);
+        }
+    }
+
+    /**
+     * Drop every cached payload
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+}
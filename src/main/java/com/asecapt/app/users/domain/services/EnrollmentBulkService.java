@@ -0,0 +1,272 @@
+package com.asecapt.app.users.domain.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Enrolls many students into one program at once, by user ID or by DNI. Students are resolved and their
+ * existing enrollments in the program loaded with one IN query per chunk; soft-deleted enrollments are
+ * reactivated and missing ones inserted with JDBC batches (the IDENTITY key of Enrollment prevents
+ * Hibernate from batching inserts), each chunk in one transaction together with its summary refresh.
+ */
+@Slf4j
+@Service
+public class EnrollmentBulkService {
+
+    public static final int MAX_BULK_SIZE = 5000;
+    private static final int CHUNK_SIZE = 500;
+    private static final String USERS_BY_ID_SQL = "SELECT u.id, u.id AS identifier FROM `user` u WHERE u.id IN (";
+    private static final String USERS_BY_DNI_SQL =
+        "SELECT u.id, p.document_number AS identifier FROM person p JOIN `user` u ON u.person_id = p.id " +
+        "WHERE p.document_number IN (";
+    private static final String EXISTING_SQL =
+        "SELECT id, user_id, deleted FROM enrollment WHERE program_id = ? AND user_id IN (";
+    // Same reset as EnrollmentService.createEnrollment applies to a soft-deleted enrollment
+    private static final String REACTIVATE_SQL =
+        "UPDATE enrollment SET deleted = FALSE, deleted_at = NULL, enrollment_date = ?, start_date = ?, " +
+        "status = 'enrolled', final_grade = NULL, attendance_percentage = NULL, completion_date = NULL, " +
+        "notes = NULL, updated_at = ? WHERE id = ? AND deleted = TRUE";
+    private static final String INSERT_SQL =
+        "INSERT INTO enrollment (user_id, program_id, enrollment_date, start_date, status, deleted, created_at, updated_at) " +
+        "VALUES (?, ?, ?, ?, 'enrolled', FALSE, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EnrollmentSummaryService enrollmentSummaryService;
+
+    public EnrollmentBulkService(JdbcTemplate jdbcTemplate,
+                                 TransactionTemplate transactionTemplate,
+                                 EnrollmentSummaryService enrollmentSummaryService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.enrollmentSummaryService = enrollmentSummaryService;
+    }
+
+    /**
+     * Enroll the given students (user IDs, or DNIs when byDni) into the program.
+     * Rows are reported in request order; a student listed twice is reported as a duplicate.
+     * @throws IllegalArgumentException when the program does not exist or the list is empty or too long
+     */
+    public BulkReport enroll(Integer programId, List<String> identifiers, boolean byDni, LocalDate startDate) {
+        if (programId == null) {
+            throw new IllegalArgumentException("programId is required");
+        }
+        if (identifiers == null || identifiers.isEmpty()) {
+            throw new IllegalArgumentException("No students given");
+        }
+        if (identifiers.size() > MAX_BULK_SIZE) {
+            throw new IllegalArgumentException("Cannot enroll more than " + MAX_BULK_SIZE + " students at once");
+        }
+        Integer programs = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM program WHERE id = ?", Integer.class, programId);
+        if (programs == null || programs == 0) {
+            throw new IllegalArgumentException("Program not found: " + programId);
+        }
+
+        BulkReport report = new BulkReport(identifiers.size());
+        Map<String, RowResult> rowsByIdentifier = new LinkedHashMap<>();
+        for (int i = 0; i < identifiers.size(); i++) {
+            String identifier = identifiers.get(i) != null ? identifiers.get(i).trim() : "";
+            RowResult row = new RowResult(i + 1, identifier);
+            report.rows.add(row);
+            if (identifier.isEmpty() || (!byDni && !identifier.matches("\\d{1,9}"))) {
+                report.fail(row, "NOT_FOUND", "Invalid " + (byDni ? "DNI" : "user ID"));
+            } else if (rowsByIdentifier.putIfAbsent(byDni ? identifier : String.valueOf(Integer.parseInt(identifier)), row) != null) {
+                report.fail(row, "DUPLICATE", "Student listed more than once");
+            }
+        }
+
+        List<Map.Entry<String, RowResult>> pending = new ArrayList<>(rowsByIdentifier.entrySet());
+        LocalDate enrollmentDate = LocalDate.now();
+        LocalDate start = startDate != null ? startDate : enrollmentDate;
+        for (int from = 0; from < pending.size(); from += CHUNK_SIZE) {
+            List<Map.Entry<String, RowResult>> chunk = pending.subList(from, Math.min(from + CHUNK_SIZE, pending.size()));
+            try {
+                report.count(transactionTemplate.execute(status -> apply(programId, chunk, byDni, enrollmentDate, start, report)));
+            } catch (RuntimeException e) {
+                log.error("Bulk enrollment chunk for program {} failed", programId, e);
+                chunk.stream()
+                    .map(Map.Entry::getValue)
+                    .filter(row -> row.message == null)
+                    .forEach(row -> report.fail(row, "FAILED", "Enrollment failed: " + e.getMessage()));
+            }
+        }
+
+        log.info("Bulk enrollment into program {}: {} enrolled, {} reactivated, {} already enrolled, {} failed",
+            programId, report.getEnrolled(), report.getReactivated(), report.getAlreadyEnrolled(), report.getFailed());
+        return report;
+    }
+
+    /**
+     * Enroll one chunk of distinct identifiers
+     * @return the rows resolved to a student, with their outcome
+     */
+    private Collection<RowResult> apply(Integer programId, List<Map.Entry<String, RowResult>> chunk, boolean byDni,
+                       LocalDate enrollmentDate, LocalDate startDate, BulkReport report) {
+        Map<Integer, RowResult> rowsByUser = new LinkedHashMap<>();
+        Map<String, Integer> userIds = new HashMap<>();
+        jdbcTemplate.query((byDni ? USERS_BY_DNI_SQL : USERS_BY_ID_SQL) + placeholders(chunk.size()) + ")",
+            rs -> { userIds.put(rs.getString("identifier"), rs.getInt("id")); },
+            chunk.stream().map(entry -> byDni ? entry.getKey() : Integer.valueOf(entry.getKey())).toArray());
+        for (Map.Entry<String, RowResult> entry : chunk) {
+            Integer userId = userIds.get(entry.getKey());
+            if (userId == null) {
+                report.fail(entry.getValue(), "NOT_FOUND", "Student not found");
+            } else if (rowsByUser.putIfAbsent(userId, entry.getValue()) != null) {
+                report.fail(entry.getValue(), "DUPLICATE", "Student listed more than once");
+            } else {
+                entry.getValue().userId = userId;
+            }
+        }
+        if (rowsByUser.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Integer, Integer> deletedByUser = new HashMap<>();
+        Map<Integer, Integer> activeByUser = new HashMap<>();
+        List<Object> args = new ArrayList<>(rowsByUser.size() + 1);
+        args.add(programId);
+        args.addAll(rowsByUser.keySet());
+        jdbcTemplate.query(EXISTING_SQL + placeholders(rowsByUser.size()) + ")", rs -> {
+            (rs.getBoolean("deleted") ? deletedByUser : activeByUser).put(rs.getInt("user_id"), rs.getInt("id"));
+        }, args.toArray());
+
+        List<RowResult> reactivate = new ArrayList<>();
+        List<RowResult> insert = new ArrayList<>();
+        for (Map.Entry<Integer, RowResult> entry : rowsByUser.entrySet()) {
+            RowResult row = entry.getValue();
+            if (activeByUser.containsKey(entry.getKey())) {
+                row.enrollmentId = activeByUser.get(entry.getKey());
+                row.status = "ALREADY_ENROLLED";
+            } else if (deletedByUser.containsKey(entry.getKey())) {
+                row.enrollmentId = deletedByUser.get(entry.getKey());
+                reactivate.add(row);
+            } else {
+                insert.add(row);
+            }
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Date enrolled = Date.valueOf(enrollmentDate);
+        Date start = Date.valueOf(startDate);
+        if (!reactivate.isEmpty()) {
+            jdbcTemplate.batchUpdate(REACTIVATE_SQL, reactivate, reactivate.size(), (ps, row) -> {
+                ps.setDate(1, enrolled);
+                ps.setDate(2, start);
+                ps.setTimestamp(3, now);
+                ps.setInt(4, row.enrollmentId);
+            });
+        }
+        if (!insert.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, insert, insert.size(), (ps, row) -> {
+                ps.setInt(1, row.userId);
+                ps.setInt(2, programId);
+                ps.setDate(3, enrolled);
+                ps.setDate(4, start);
+                ps.setTimestamp(5, now);
+                ps.setTimestamp(6, now);
+            });
+            Map<Integer, Integer> inserted = new HashMap<>();
+            List<Object> insertedArgs = new ArrayList<>(insert.size() + 1);
+            insertedArgs.add(programId);
+            insert.forEach(row -> insertedArgs.add(row.userId));
+            jdbcTemplate.query(EXISTING_SQL + placeholders(insert.size()) + ") AND deleted = FALSE",
+                rs -> { inserted.merge(rs.getInt("user_id"), rs.getInt("id"), Math::max); }, insertedArgs.toArray());
+            insert.forEach(row -> row.enrollmentId = inserted.get(row.userId));
+        }
+
+        List<Integer> changedUsers = new ArrayList<>(reactivate.size() + insert.size());
+        reactivate.forEach(row -> changedUsers.add(row.userId));
+        insert.forEach(row -> changedUsers.add(row.userId));
+        if (!changedUsers.isEmpty()) {
+            enrollmentSummaryService.refresh(changedUsers);
+        }
+
+        reactivate.forEach(row -> row.status = "REACTIVATED");
+        insert.forEach(row -> row.status = "ENROLLED");
+        return rowsByUser.values();
+    }
+
+    private static String placeholders(int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
+
+    /**
+     * Totals and per-row outcomes of a bulk enrollment
+     */
+    public static class BulkReport {
+        private final int total;
+        private int enrolled;
+        private int reactivated;
+        private int alreadyEnrolled;
+        private int failed;
+        private final List<RowResult> rows;
+
+        BulkReport(int total) {
+            this.total = total;
+            this.rows = new ArrayList<>(total);
+        }
+
+        void fail(RowResult row, String status, String message) {
+            row.status = status;
+            row.message = message;
+            row.enrollmentId = null;
+            failed++;
+        }
+
+        void count(Collection<RowResult> resolved) {
+            for (RowResult row : resolved) {
+                switch (row.status) {
+                    case "ENROLLED" -> enrolled++;
+                    case "REACTIVATED" -> reactivated++;
+                    case "ALREADY_ENROLLED" -> alreadyEnrolled++;
+                    default -> { }
+                }
+            }
+        }
+
+        public int getTotal() { return total; }
+        public int getEnrolled() { return enrolled; }
+        public int getReactivated() { return reactivated; }
+        public int getAlreadyEnrolled() { return alreadyEnrolled; }
+        public int getFailed() { return failed; }
+        public List<RowResult> getRows() { return rows; }
+    }
+
+    /**
+     * Outcome of one requested student: ENROLLED, REACTIVATED, ALREADY_ENROLLED, NOT_FOUND, DUPLICATE or FAILED
+     */
+    public static class RowResult {
+        private final int row;
+        private final String identifier;
+        private Integer userId;
+        private Integer enrollmentId;
+        private String status = "PENDING";
+        private String message;
+
+        RowResult(int row, String identifier) {
+            this.row = row;
+            this.identifier = identifier;
+        }
+
+        public int getRow() { return row; }
+        public String getIdentifier() { return identifier; }
+        public Integer getUserId() { return userId; }
+        public Integer getEnrollmentId() { return enrollmentId; }
+        public String getStatus() { return status; }
+        public String getMessage() { return message; }
+    }
+}
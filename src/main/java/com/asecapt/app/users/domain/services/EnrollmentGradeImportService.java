@@ -0,0 +1,376 @@
+package com.asecapt.app.users.domain.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.LineNumberReader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bulk grade and attendance import for a program from a CSV file (DNI, grade, attendance columns).
+ * The file is read record by record; every chunk of rows is resolved to enrollments with one query and
+ * updated with one JDBC batch in its own transaction, so memory and round trips stay flat with the file size.
+ * The report lists only the rows that failed or were imported with a warning.
+ */
+@Slf4j
+@Service
+public class EnrollmentGradeImportService {
+
+    private static final int CHUNK_SIZE = 200;
+    private static final BigDecimal MAX_PERCENTAGE = BigDecimal.valueOf(100);
+    private static final String LOOKUP_SQL =
+        "SELECT e.id, e.user_id, p.document_number, c.certificate_code FROM enrollment e " +
+        "JOIN `user` u ON u.id = e.user_id JOIN person p ON p.id = u.person_id " +
+        "LEFT JOIN certificates c ON c.enrollment_id = e.id AND c.is_active = TRUE " +
+        "WHERE e.program_id = ? AND e.deleted = FALSE AND p.document_number IN (";
+    private static final String UPDATE_SQL =
+        "UPDATE enrollment SET final_grade = COALESCE(?, final_grade), " +
+        "attendance_percentage = COALESCE(?, attendance_percentage), updated_at = ? WHERE id = ?";
+    private static final String COMPLETE_SQL =
+        "UPDATE enrollment SET final_grade = COALESCE(?, final_grade), " +
+        "attendance_percentage = COALESCE(?, attendance_percentage), updated_at = ?, " +
+        "status = 'completed', completion_date = COALESCE(completion_date, ?) WHERE id = ?";
+
+    private static final Set<String> DNI_HEADERS = Set.of("dni", "documento", "documentnumber", "numerodocumento", "nrodocumento");
+    private static final Set<String> GRADE_HEADERS = Set.of("nota", "notafinal", "grade", "finalgrade", "calificacion");
+    private static final Set<String> ATTENDANCE_HEADERS = Set.of("asistencia", "attendance", "attendancepercentage", "porcentajeasistencia");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EnrollmentSummaryService enrollmentSummaryService;
+    private final CertificateVerificationCache certificateVerificationCache;
+
+    public EnrollmentGradeImportService(JdbcTemplate jdbcTemplate,
+                                        TransactionTemplate transactionTemplate,
+                                        EnrollmentSummaryService enrollmentSummaryService,
+                                        CertificateVerificationCache certificateVerificationCache) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.enrollmentSummaryService = enrollmentSummaryService;
+        this.certificateVerificationCache = certificateVerificationCache;
+    }
+
+    /**
+     * Import grades and attendance of a program's students. The first line is the header; the delimiter
+     * (comma or semicolon) is taken from it. Blank grade or attendance cells keep the current value.
+     * With complete=true the updated enrollments are also marked as completed.
+     * @throws IllegalArgumentException when the header lacks the DNI column or both value columns
+     */
+    public ImportReport importGrades(Integer programId, InputStream content, boolean complete) throws IOException {
+        if (programId == null) {
+            throw new IllegalArgumentException("programId is required");
+        }
+        LineNumberReader reader = new LineNumberReader(new InputStreamReader(content, StandardCharsets.UTF_8));
+        String header = reader.readLine();
+        while (header != null && header.isBlank()) {
+            header = reader.readLine();
+        }
+        if (header == null) {
+            throw new IllegalArgumentException("The file is empty");
+        }
+        if (header.startsWith("\uFEFF")) {
+            header = header.substring(1);
+        }
+        char delimiter = header.indexOf(';') >= 0 && header.indexOf(',') < 0 ? ';' : ',';
+        Columns columns = Columns.of(parseRecord(header, reader, delimiter));
+
+        ImportReport report = new ImportReport();
+        Map<String, Integer> firstRowByDni = new HashMap<>();
+        List<PendingRow> chunk = new ArrayList<>(CHUNK_SIZE);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            int rowNumber = reader.getLineNumber();
+            if (line.isBlank()) {
+                continue;
+            }
+            PendingRow row = validate(rowNumber, parseRecord(line, reader, delimiter), columns, firstRowByDni, report);
+            if (row != null) {
+                chunk.add(row);
+                if (chunk.size() == CHUNK_SIZE) {
+                    apply(programId, chunk, complete, report);
+                    chunk.clear();
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            apply(programId, chunk, complete, report);
+        }
+
+        log.info("Grade import for program {}: {} rows, {} updated, {} failed",
+            programId, report.getTotal(), report.getUpdated(), report.getFailed());
+        return report;
+    }
+
+    private PendingRow validate(int rowNumber, List<String> fields, Columns columns,
+                                Map<String, Integer> firstRowByDni, ImportReport report) {
+        report.total++;
+        String dni = columns.value(fields, columns.dni);
+        if (dni.isEmpty()) {
+            report.fail(rowNumber, null, "Missing DNI");
+            return null;
+        }
+        BigDecimal grade;
+        BigDecimal attendance;
+        try {
+            grade = parsePercentage(columns.value(fields, columns.grade), "Grade");
+            attendance = parsePercentage(columns.value(fields, columns.attendance), "Attendance");
+        } catch (IllegalArgumentException e) {
+            report.fail(rowNumber, dni, e.getMessage());
+            return null;
+        }
+        if (grade == null && attendance == null) {
+            report.fail(rowNumber, dni, "No grade or attendance given");
+            return null;
+        }
+        Integer firstRow = firstRowByDni.putIfAbsent(dni, rowNumber);
+        if (firstRow != null) {
+            report.fail(rowNumber, dni, "Duplicate DNI, already imported from row " + firstRow);
+            return null;
+        }
+
+        List<String> warnings = new ArrayList<>(2);
+        if (grade != null && grade.compareTo(BigDecimal.valueOf(CertificateService.MIN_PASSING_GRADE)) < 0) {
+            warnings.add("grade below the passing minimum of " + CertificateService.MIN_PASSING_GRADE);
+        }
+        if (attendance != null && attendance.compareTo(BigDecimal.valueOf(CertificateService.MIN_ATTENDANCE_PERCENTAGE)) < 0) {
+            warnings.add("attendance below the minimum of " + CertificateService.MIN_ATTENDANCE_PERCENTAGE + "%");
+        }
+        String warning = warnings.isEmpty() ? null
+            : "Not eligible for a certificate: " + String.join(", ", warnings);
+        return new PendingRow(rowNumber, dni, grade, attendance, warning);
+    }
+
+    /**
+     * Resolve a chunk to active enrollments of the program with one query and update them with one batch
+     */
+    private void apply(Integer programId, List<PendingRow> chunk, boolean complete, ImportReport report) {
+        List<Object> args = new ArrayList<>(chunk.size() + 1);
+        args.add(programId);
+        chunk.forEach(row -> args.add(row.dni));
+        String sql = LOOKUP_SQL + String.join(",", Collections.nCopies(chunk.size(), "?")) + ")";
+
+        Map<String, Match> matches = new HashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            matches.put(rs.getString("document_number"),
+                new Match(rs.getInt("id"), rs.getInt("user_id"), rs.getString("certificate_code")));
+        }, args.toArray());
+
+        List<PendingRow> found = new ArrayList<>(chunk.size());
+        for (PendingRow row : chunk) {
+            row.match = matches.get(row.dni);
+            if (row.match == null) {
+                report.fail(row.rowNumber, row.dni, "No active enrollment in this program for this DNI");
+            } else {
+                found.add(row);
+            }
+        }
+        if (found.isEmpty()) {
+            return;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Date today = Date.valueOf(LocalDate.now());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(complete ? COMPLETE_SQL : UPDATE_SQL, found, found.size(), (ps, row) -> {
+                    ps.setObject(1, row.grade, Types.DECIMAL);
+                    ps.setObject(2, row.attendance, Types.DECIMAL);
+                    ps.setTimestamp(3, now);
+                    if (complete) {
+                        ps.setDate(4, today);
+                        ps.setInt(5, row.match.enrollmentId);
+                    } else {
+                        ps.setInt(4, row.match.enrollmentId);
+                    }
+                });
+                if (complete) {
+                    enrollmentSummaryService.refresh(found.stream().map(row -> row.match.userId).toList());
+                }
+            });
+        } catch (RuntimeException e) {
+            log.error("Grade import chunk for program {} failed", programId, e);
+            found.forEach(row -> report.fail(row.rowNumber, row.dni, "Update failed: " + e.getMessage()));
+            return;
+        }
+
+        for (PendingRow row : found) {
+            report.succeed(row.rowNumber, row.dni, row.match.enrollmentId, row.warning);
+            // The public verification payload embeds the grade and attendance
+            certificateVerificationCache.invalidate(row.match.certificateCode);
+        }
+    }
+
+    private static BigDecimal parsePercentage(String value, String label) {
+        if (value.isEmpty()) {
+            return null;
+        }
+        BigDecimal number;
+        try {
+            number = new BigDecimal(value.replace(',', '.'));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(label + " is not a number: " + value);
+        }
+        if (number.signum() < 0 || number.compareTo(MAX_PERCENTAGE) > 0) {
+            throw new IllegalArgumentException(label + " must be between 0 and 100: " + value);
+        }
+        return number.setScale(2, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Split one CSV record, reading further lines while a quoted field spans them
+     */
+    static List<String> parseRecord(String line, LineNumberReader reader, char delimiter) throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        String current = line;
+        int i = 0;
+        while (true) {
+            if (i == current.length()) {
+                if (!quoted) {
+                    break;
+                }
+                String next = reader.readLine();
+                if (next == null) {
+                    break;
+                }
+                field.append('\n');
+                current = next;
+                i = 0;
+                continue;
+            }
+            char c = current.charAt(i++);
+            if (quoted) {
+                if (c == '"' && i < current.length() && current.charAt(i) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == delimiter) {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+
+    /**
+     * Positions of the imported columns in the header, -1 when absent
+     */
+    private record Columns(int dni, int grade, int attendance) {
+
+        static Columns of(List<String> header) {
+            int dni = -1;
+            int grade = -1;
+            int attendance = -1;
+            for (int i = 0; i < header.size(); i++) {
+                String name = normalizeHeader(header.get(i));
+                if (dni < 0 && DNI_HEADERS.contains(name)) {
+                    dni = i;
+                } else if (grade < 0 && GRADE_HEADERS.contains(name)) {
+                    grade = i;
+                } else if (attendance < 0 && ATTENDANCE_HEADERS.contains(name)) {
+                    attendance = i;
+                }
+            }
+            if (dni < 0) {
+                throw new IllegalArgumentException("The header must have a DNI column");
+            }
+            if (grade < 0 && attendance < 0) {
+                throw new IllegalArgumentException("The header must have a grade or an attendance column");
+            }
+            return new Columns(dni, grade, attendance);
+        }
+
+        String value(List<String> fields, int index) {
+            return index >= 0 && index < fields.size() ? fields.get(index) : "";
+        }
+
+        private static String normalizeHeader(String name) {
+            return Normalizer.normalize(name, Normalizer.Form.NFD)
+                .replaceAll("[^A-Za-z]", "")
+                .toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private record Match(int enrollmentId, int userId, String certificateCode) {
+    }
+
+    private static class PendingRow {
+        private final int rowNumber;
+        private final String dni;
+        private final BigDecimal grade;
+        private final BigDecimal attendance;
+        private final String warning;
+        private Match match;
+
+        PendingRow(int rowNumber, String dni, BigDecimal grade, BigDecimal attendance, String warning) {
+            this.rowNumber = rowNumber;
+            this.dni = dni;
+            this.grade = grade;
+            this.attendance = attendance;
+            this.warning = warning;
+        }
+    }
+
+    /**
+     * Totals of an import and the rows that failed or carry a warning; row is the line number in the file
+     */
+    public static class ImportReport {
+        private int total;
+        private int updated;
+        private int failed;
+        private final List<RowResult> rows = new ArrayList<>();
+
+        void succeed(int row, String dni, Integer enrollmentId, String warning) {
+            updated++;
+            if (warning != null) {
+                rows.add(new RowResult(row, dni, enrollmentId, "UPDATED", warning));
+            }
+        }
+
+        void fail(int row, String dni, String message) {
+            failed++;
+            rows.add(new RowResult(row, dni, null, "FAILED", message));
+        }
+
+        public int getTotal() { return total; }
+        public int getUpdated() { return updated; }
+        public int getFailed() { return failed; }
+        public List<RowResult> getRows() { return rows; }
+    }
+
+    /**
+     * Outcome of one imported row
+     */
+    public record RowResult(int row, String documentNumber, Integer enrollmentId, String status, String message) {
+    }
+}
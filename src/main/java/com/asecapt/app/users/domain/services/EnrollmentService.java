@@ -1,26 +1,70 @@
 package com.asecapt.app.users.domain.services;
 
+import com.asecapt.app.commons.util.CursorUtil;
+import com.asecapt.app.users.application.dto.CursorPage;
+import com.asecapt.app.users.application.dto.EnrollmentListItemDto;
 import com.asecapt.app.users.domain.entities.Enrollment;
 import com.asecapt.app.users.domain.entities.Certificate;
+import com.asecapt.app.users.domain.entities.EnrollmentStatusSummary;
 import com.asecapt.app.users.domain.repository.EnrollmentRepository;
 import com.asecapt.app.users.infrastructure.repository.CertificateRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 
 @Service
 public class EnrollmentService {
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int MAX_SEARCH_RESULTS = 100;
+    private static final int MAX_SEARCH_TERMS = 5;
+    private static final String COMPLETED = " AND e.status = 'completed' AND e.deleted = FALSE";
+    private static final String STUDENT_ENROLLMENTS =
+        " FROM person p JOIN `user` u ON u.person_id = p.id JOIN enrollment e ON e.user_id = u.id WHERE ";
+    // Completed enrollments from index-backed prefix matches, each with its rank; args: query, phrase%, term%, term%, phrase%, phrase%
+    private static final String SEARCH_SQL =
+        "SELECT e.id FROM (" +
+        "SELECT e.id AS enrollment_id, CASE WHEN p.document_number = ? THEN 100 ELSE 80 END AS score" +
+        STUDENT_ENROLLMENTS + "p.document_number LIKE ?" + COMPLETED +
+        " UNION ALL SELECT e.id, 60" + STUDENT_ENROLLMENTS + "p.last_name LIKE ?" + COMPLETED +
+        " UNION ALL SELECT e.id, 50" + STUDENT_ENROLLMENTS + "p.first_name LIKE ?" + COMPLETED +
+        " UNION ALL SELECT e.id, 40" + STUDENT_ENROLLMENTS + "p.email LIKE ?" + COMPLETED +
+        " UNION ALL SELECT e.id, 30 FROM program pr JOIN enrollment e ON e.program_id = pr.id WHERE pr.title LIKE ?" + COMPLETED +
+        ") m " +
+        "JOIN enrollment e ON e.id = m.enrollment_id " +
+        "JOIN `user` u ON u.id = e.user_id " +
+        "LEFT JOIN person p ON p.id = u.person_id " +
+        "JOIN program pr ON pr.id = e.program_id " +
+        "WHERE 1 = 1 ";
+
     private final EnrollmentRepository enrollmentRepository;
     private final CertificateRepository certificateRepository;
+    private final CertificateVerificationCache certificateVerificationCache;
+    private final EnrollmentSummaryService enrollmentSummaryService;
+    private final CertificateService certificateService;
+    private final JdbcTemplate jdbcTemplate;
 
-    public EnrollmentService(EnrollmentRepository enrollmentRepository, CertificateRepository certificateRepository) {
+    public EnrollmentService(EnrollmentRepository enrollmentRepository, CertificateRepository certificateRepository,
+                             CertificateVerificationCache certificateVerificationCache,
+                             EnrollmentSummaryService enrollmentSummaryService,
+                             CertificateService certificateService,
+                             JdbcTemplate jdbcTemplate) {
         this.enrollmentRepository = enrollmentRepository;
         this.certificateRepository = certificateRepository;
+        this.certificateVerificationCache = certificateVerificationCache;
+        this.enrollmentSummaryService = enrollmentSummaryService;
+        this.certificateService = certificateService;
+        this.jdbcTemplate = jdbcTemplate;
     }
 
     public List<Enrollment> getAllEnrollments() {
@@ -40,10 +84,68 @@ public class EnrollmentService {
         return enrollmentRepository.findByStatusAndDeletedFalseOrderByCompletionDateDesc("completed");
     }
 
-    public List<Enrollment> searchCompletedEnrollments(String query) {
-        // For now, ignoring query parameter and returning all completed enrollments
-        // TODO: Implement actual search functionality
-        return enrollmentRepository.findByStatusAndDeletedFalseOrderByCompletionDateDesc("completed");
+    /**
+     * Keyset page of enrollments, newest enrollment date first, as slim rows with student and program names.
+     * deleted=null lists both active and soft-deleted enrollments. Fetches one extra row to know whether a next page exists.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<EnrollmentListItemDto> getEnrollmentPage(Boolean deleted, String status, Integer programId, Integer userId,
+                                                               LocalDate enrolledFrom, LocalDate enrolledTo,
+                                                               LocalDate completedFrom, LocalDate completedTo,
+                                                               String cursor, int limit) {
+        CursorUtil.Cursor position = CursorUtil.decode(cursor);
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<EnrollmentListItemDto> rows = enrollmentRepository.findPage(deleted, status, programId, userId,
+            enrolledFrom, enrolledTo, completedFrom, completedTo,
+            position != null ? position.timestamp().toLocalDate() : null,
+            position != null ? position.id() : null,
+            PageRequest.of(0, pageSize + 1));
+
+        if (rows.size() <= pageSize) {
+            return new CursorPage<>(rows, null);
+        }
+        List<EnrollmentListItemDto> page = rows.subList(0, pageSize);
+        EnrollmentListItemDto last = page.get(pageSize - 1);
+        return new CursorPage<>(page, CursorUtil.encode(last.enrollmentDate().atStartOfDay(), last.id()));
+    }
+
+    /**
+     * Search completed enrollments by student document number, name, email or program title, best matches first.
+     * Each field is matched by prefix through its own index and the candidates are ranked in SQL:
+     * exact document number, document prefix, last name, first name, email, program title.
+     * Further words of the query must appear in the student name or program title.
+     */
+    @Transactional(readOnly = true)
+    public List<Enrollment> searchCompletedEnrollments(String query, int limit) {
+        int maxResults = Math.max(1, Math.min(limit, MAX_SEARCH_RESULTS));
+        String[] terms = query == null ? new String[0] : query.trim().split("\\s+");
+        if (terms.length == 0 || terms[0].isEmpty()) {
+            return enrollmentRepository.findByStatusAndDeletedFalseOrderByCompletionDateDescIdDesc(
+                "completed", PageRequest.of(0, maxResults));
+        }
+
+        String phrase = escapeLike(query.trim()) + "%";
+        String firstTerm = escapeLike(terms[0]) + "%";
+        StringBuilder sql = new StringBuilder(SEARCH_SQL);
+        List<Object> args = new ArrayList<>(List.of(query.trim(), phrase, firstTerm, firstTerm, phrase, phrase));
+        for (int i = 1; i < Math.min(terms.length, MAX_SEARCH_TERMS); i++) {
+            sql.append("AND CONCAT_WS(' ', p.first_name, p.last_name, pr.title) LIKE ? ");
+            args.add("%" + escapeLike(terms[i]) + "%");
+        }
+        sql.append("GROUP BY e.id, e.completion_date ORDER BY MAX(m.score) DESC, e.completion_date DESC, e.id DESC LIMIT ?");
+        args.add(maxResults);
+
+        List<Integer> rankedIds = jdbcTemplate.queryForList(sql.toString(), Integer.class, args.toArray());
+        Map<Integer, Enrollment> enrollments = new HashMap<>();
+        enrollmentRepository.findAllById(rankedIds).forEach(enrollment -> enrollments.put(enrollment.getId(), enrollment));
+        return rankedIds.stream()
+            .map(enrollments::get)
+            .filter(Objects::nonNull)
+            .toList();
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
     }
 
     public Optional<Enrollment> getEnrollmentById(Integer id) {
@@ -54,6 +156,7 @@ public class EnrollmentService {
         return enrollmentRepository.findByUserIdAndProgramId(userId, programId);
     }
 
+    @Transactional
     public Enrollment createEnrollment(Integer userId, Integer programId, LocalDate startDate) {
         // Check if active enrollment already exists (not deleted)
         Optional<Enrollment> existing = enrollmentRepository.findByUserIdAndProgramId(userId, programId);
@@ -76,7 +179,7 @@ public class EnrollmentService {
             enrollment.setCompletionDate(null);
             enrollment.setNotes(null);
             
-            return enrollmentRepository.save(enrollment);
+            return saveAndRefreshSummary(enrollment);
         }
 
         // Create new enrollment
@@ -88,9 +191,10 @@ public class EnrollmentService {
         enrollment.setStatus("enrolled");
         enrollment.setDeleted(false);
 
-        return enrollmentRepository.save(enrollment);
+        return saveAndRefreshSummary(enrollment);
     }
 
+    @Transactional
     public Enrollment updateEnrollmentStatus(Integer enrollmentId, String status) {
         Enrollment enrollment = enrollmentRepository.findById(enrollmentId)
             .orElseThrow(() -> new RuntimeException("Enrollment not found"));
@@ -102,7 +206,7 @@ public class EnrollmentService {
             enrollment.setCompletionDate(LocalDate.now());
         }
 
-        return enrollmentRepository.save(enrollment);
+        return saveAndRefreshSummary(enrollment);
     }
 
     public Enrollment updateGradeAndAttendance(Integer enrollmentId, BigDecimal finalGrade, BigDecimal attendancePercentage) {
@@ -115,6 +219,7 @@ public class EnrollmentService {
         return enrollmentRepository.save(enrollment);
     }
 
+    @Transactional
     public Enrollment updateEnrollment(Integer enrollmentId, com.asecapt.app.users.application.controllers.EnrollmentController.UpdateEnrollmentRequest request) {
         Enrollment enrollment = enrollmentRepository.findById(enrollmentId)
             .orElseThrow(() -> new RuntimeException("Enrollment not found"));
@@ -146,22 +251,22 @@ public class EnrollmentService {
         }
 
         // Save enrollment first
-        Enrollment updatedEnrollment = enrollmentRepository.save(enrollment);
+        Enrollment updatedEnrollment = request.getStatus() != null
+            ? saveAndRefreshSummary(enrollment)
+            : enrollmentRepository.save(enrollment);
+
+        // Find certificate associated with this enrollment; its public payload embeds enrollment data
+        Optional<Certificate> certificateOpt = certificateRepository.findByEnrollmentId(enrollmentId);
 
         // Update certificate issue date if provided
         if (request.getIssueDate() != null && !request.getIssueDate().trim().isEmpty()) {
             try {
-                // Find certificate associated with this enrollment
-                Optional<Certificate> certificateOpt = certificateRepository.findByEnrollmentId(enrollmentId);
                 if (certificateOpt.isPresent()) {
                     Certificate certificate = certificateOpt.get();
                     
-                    // Parse and update the issued date
+                    // Parse and update the issued date; tokens signed with the previous date are superseded
                     LocalDateTime issuedDate = LocalDateTime.parse(request.getIssueDate() + "T00:00:00");
-                    certificate.setIssuedDate(issuedDate);
-                    
-                    // Save the updated certificate
-                    certificateRepository.save(certificate);
+                    certificateService.changeIssuedDate(certificate, issuedDate);
                     
                     System.out.println("Updated certificate issue date for enrollment " + enrollmentId + " to " + request.getIssueDate());
                 } else {
@@ -173,9 +278,12 @@ public class EnrollmentService {
             }
         }
 
+        certificateOpt.ifPresent(certificate -> certificateVerificationCache.invalidate(certificate.getCertificateCode()));
+
         return updatedEnrollment;
     }
 
+    @Transactional
     public Enrollment completeEnrollment(Integer enrollmentId, BigDecimal finalGrade, BigDecimal attendancePercentage) {
         Enrollment enrollment = enrollmentRepository.findById(enrollmentId)
             .orElseThrow(() -> new RuntimeException("Enrollment not found"));
@@ -185,12 +293,13 @@ public class EnrollmentService {
         enrollment.setFinalGrade(finalGrade);
         enrollment.setAttendancePercentage(attendancePercentage);
 
-        return enrollmentRepository.save(enrollment);
+        return saveAndRefreshSummary(enrollment);
     }
 
     /**
      * Soft delete enrollment by ID
      */
+    @Transactional
     public void deleteEnrollment(Integer enrollmentId) {
         Enrollment enrollment = enrollmentRepository.findById(enrollmentId)
             .orElseThrow(() -> new RuntimeException("Enrollment not found"));
@@ -199,36 +308,28 @@ public class EnrollmentService {
         enrollment.setDeleted(true);
         enrollment.setDeletedAt(java.time.LocalDateTime.now());
         
-        enrollmentRepository.save(enrollment);
+        saveAndRefreshSummary(enrollment);
     }
 
     /**
-     * Get enrollment summary for all active students
-     * Returns a map of student ID -> enrollment statistics
+     * Save an enrollment whose status or deleted flag may have changed and recompute its student's summary
      */
-    public Map<Integer, EnrollmentSummary> getEnrollmentSummaryForActiveStudents() {
-        // Get all enrollments that are not soft-deleted
-        List<Enrollment> allEnrollments = enrollmentRepository.findByDeletedFalse();
-        
-        // Group enrollments by user ID and calculate statistics
-        Map<Integer, EnrollmentSummary> summaryMap = new HashMap<>();
+    private Enrollment saveAndRefreshSummary(Enrollment enrollment) {
+        Enrollment saved = enrollmentRepository.saveAndFlush(enrollment);
+        enrollmentSummaryService.refresh(saved.getUserId());
+        return saved;
+    }
+
+    /**
+     * Get enrollment summary for all active students, or for one student when userId is given
+     * Returns a map of student ID -> enrollment statistics, read from the maintained status summary
+     */
+    public Map<Integer, EnrollmentSummary> getEnrollmentSummaryForActiveStudents(Integer userId) {
+        Map<Integer, EnrollmentSummary> summaryMap = new LinkedHashMap<>();
         
-        for (Enrollment enrollment : allEnrollments) {
-            if (enrollment.getUserId() != null) {
-                Integer userId = enrollment.getUserId();
-                
-                // Get or create summary for this user
-                EnrollmentSummary summary = summaryMap.getOrDefault(userId, new EnrollmentSummary(userId));
-                
-                // Update counters based on enrollment status
-                summary.incrementTotalEnrollments();
-                
-                if ("completed".equals(enrollment.getStatus())) {
-                    summary.incrementCompletedEnrollments();
-                }
-                
-                summaryMap.put(userId, summary);
-            }
+        for (EnrollmentStatusSummary statusCount : enrollmentSummaryService.getStatusCounts(userId)) {
+            summaryMap.computeIfAbsent(statusCount.getUserId(), EnrollmentSummary::new)
+                .addStatusCount(statusCount.getStatus(), statusCount.getEnrollmentCount());
         }
         
         return summaryMap;
@@ -241,6 +342,7 @@ public class EnrollmentService {
         private Integer userId;
         private int totalEnrollments;
         private int completedEnrollments;
+        private Map<String, Integer> statusCounts = new HashMap<>();
         
         public EnrollmentSummary(Integer userId) {
             this.userId = userId;
@@ -248,6 +350,14 @@ public class EnrollmentService {
             this.completedEnrollments = 0;
         }
         
+        public void addStatusCount(String status, int count) {
+            this.statusCounts.merge(status, count, Integer::sum);
+            this.totalEnrollments += count;
+            if ("completed".equals(status)) {
+                this.completedEnrollments += count;
+            }
+        }
+        
         public void incrementTotalEnrollments() {
             this.totalEnrollments++;
         }
@@ -263,5 +373,7 @@ public class EnrollmentService {
         public void setTotalEnrollments(int totalEnrollments) { this.totalEnrollments = totalEnrollments; }
         public int getCompletedEnrollments() { return completedEnrollments; }
         public void setCompletedEnrollments(int completedEnrollments) { this.completedEnrollments = completedEnrollments; }
+        public Map<String, Integer> getStatusCounts() { return statusCounts; }
+        public void setStatusCounts(Map<String, Integer> statusCounts) { this.statusCounts = statusCounts; }
     }
 }
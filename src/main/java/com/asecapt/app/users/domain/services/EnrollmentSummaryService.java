@@ -0,0 +1,98 @@
+package com.asecapt.app.users.domain.services;
+
+import com.asecapt.app.users.domain.entities.EnrollmentStatusSummary;
+import com.asecapt.app.users.domain.repository.EnrollmentStatusSummaryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Maintains enrollment_status_summary, the per-student count of non-deleted enrollments by status, so the
+ * enrollment summary is a single indexed read. A student's rows are recomputed with one GROUP BY over their
+ * enrollments (index user_id, program_id, deleted) in the transaction that changed them, which keeps the
+ * summary exact without delta bookkeeping. A refresh first locks the students' user rows in ID order, so
+ * concurrent refreshes of one student queue instead of interleaving. Counts are then upserted, which locks only
+ * the existing summary keys, and statuses left without enrollments are deleted last. A DELETE followed by an
+ * INSERT would hold gap locks on the summary key range while inserting into it, and that can deadlock.
+ */
+@Slf4j
+@Service
+public class EnrollmentSummaryService {
+
+    private static final String AGGREGATE_SQL =
+        "INSERT INTO enrollment_status_summary (user_id, status, enrollment_count) " +
+        "SELECT user_id, status, COUNT(*) FROM enrollment WHERE deleted = FALSE";
+    private static final String DELETE_EMPTY_SQL =
+        "DELETE FROM enrollment_status_summary WHERE NOT EXISTS (SELECT 1 FROM enrollment e " +
+        "WHERE e.user_id = enrollment_status_summary.user_id AND e.status = enrollment_status_summary.status " +
+        "AND e.deleted = FALSE) AND user_id IN (";
+    private static final int REFRESH_CHUNK_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EnrollmentStatusSummaryRepository enrollmentStatusSummaryRepository;
+
+    public EnrollmentSummaryService(JdbcTemplate jdbcTemplate,
+                                    EnrollmentStatusSummaryRepository enrollmentStatusSummaryRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enrollmentStatusSummaryRepository = enrollmentStatusSummaryRepository;
+    }
+
+    /**
+     * Recompute the status counts of one student; call after the enrollment change is flushed
+     */
+    @Transactional
+    public void refresh(Integer userId) {
+        if (userId != null) {
+            refresh(List.of(userId));
+        }
+    }
+
+    /**
+     * Recompute the status counts of several students, in chunks (user rows locked first, in ID order)
+     */
+    @Transactional
+    public void refresh(Collection<Integer> userIds) {
+        List<Integer> ids = userIds.stream().distinct().sorted().toList();
+        for (int from = 0; from < ids.size(); from += REFRESH_CHUNK_SIZE) {
+            Object[] chunk = ids.subList(from, Math.min(from + REFRESH_CHUNK_SIZE, ids.size())).toArray();
+            String placeholders = String.join(",", Collections.nCopies(chunk.length, "?"));
+            jdbcTemplate.queryForList("SELECT id FROM `user` WHERE id IN (" + placeholders + ") ORDER BY id FOR UPDATE",
+                Integer.class, chunk);
+            jdbcTemplate.update(AGGREGATE_SQL + " AND user_id IN (" + placeholders + ") GROUP BY user_id, status " +
+                "ON DUPLICATE KEY UPDATE enrollment_count = VALUES(enrollment_count)", chunk);
+            jdbcTemplate.update(DELETE_EMPTY_SQL + placeholders + ")", chunk);
+        }
+    }
+
+    /**
+     * Status counts of every student, or of one student when userId is given
+     */
+    @Transactional(readOnly = true)
+    public List<EnrollmentStatusSummary> getStatusCounts(Integer userId) {
+        return userId != null
+            ? enrollmentStatusSummaryRepository.findByUserId(userId)
+            : enrollmentStatusSummaryRepository.findAllByOrderByUserId();
+    }
+
+    /**
+     * Fill the summary when the table was just created (schema generated without the V14 migration)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillIfEmpty() {
+        if (enrollmentStatusSummaryRepository.count() > 0) {
+            return;
+        }
+        int rows = jdbcTemplate.update(AGGREGATE_SQL + " GROUP BY user_id, status");
+        if (rows > 0) {
+            log.info("Enrollment status summary backfilled with {} rows", rows);
+        }
+    }
+}
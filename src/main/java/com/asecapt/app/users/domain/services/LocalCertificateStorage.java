@@ -0,0 +1,295 @@
+package com.asecapt.app.users.domain.services;
+
+import com.asecapt.app.users.application.exception.StorageException;
+import com.asecapt.app.users.application.exception.StorageFileNotFoundException;
+import com.asecapt.app.users.application.exception.StorageRangeNotSatisfiableException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Filesystem certificate storage used by the "local" profile so certificate issuance runs without AWS.
+ * Keys keep the S3 layout but are sharded on disk by the first characters of the DNI
+ * (certificates/12345678/x.pdf -> {root}/certificates/12/12345678/x.pdf) to keep directories small.
+ */
+@Slf4j
+@Service
+@Profile("local")
+public class LocalCertificateStorage implements CertificateStorage {
+
+    private static final int SHARD_LENGTH = 2;
+
+    private final Path rootDir;
+
+    public LocalCertificateStorage(@Value("${app.certificates.storage.local-dir:./uploads/certificate-storage/}") String rootDir) {
+        this.rootDir = Paths.get(rootDir).toAbsolutePath().normalize();
+        log.info("Local certificate storage at {}", this.rootDir);
+    }
+
+    @Override
+    public String uploadCertificate(String dni, String courseInitials, String certificateCode,
+                                    byte[] fileContent, String fileExtension) {
+        String key = CertificateStorage.certificateKey(dni, courseInitials, certificateCode, fileExtension);
+        write(key, fileContent);
+        log.info("Certificate stored locally: {}", key);
+        return key;
+    }
+
+    @Override
+    public String uploadBlob(String contentHash, byte[] fileContent, String fileExtension) {
+        String key = CertificateStorage.blobKey(contentHash, fileExtension);
+        write(key, fileContent);
+        log.info("Certificate blob stored locally: {}", key);
+        return key;
+    }
+
+    @Override
+    public String uploadBlob(String contentHash, InputStream content, long size, String fileExtension) {
+        String key = CertificateStorage.blobKey(contentHash, fileExtension);
+        write(key, channel -> {
+            long written = content.transferTo(Channels.newOutputStream(channel));
+            if (written != size) {
+                throw new IOException("Expected " + size + " bytes but received " + written);
+            }
+        });
+        log.info("Certificate blob streamed locally: {}", key);
+        return key;
+    }
+
+    @Override
+    public String uploadQRCode(String dni, String courseInitials, String certificateCode, byte[] qrContent) {
+        String key = CertificateStorage.qrCodeKey(dni, courseInitials, certificateCode);
+        write(key, qrContent);
+        log.info("QR code stored locally: {}", key);
+        return key;
+    }
+
+    @Override
+    public byte[] downloadFile(String key) throws IOException {
+        try {
+            return Files.readAllBytes(resolve(key));
+        } catch (NoSuchFileException e) {
+            throw new StorageFileNotFoundException("File not found: " + key, e);
+        }
+    }
+
+    @Override
+    public CertificateFileStream openFile(String key, String range) throws IOException {
+        Path path = resolve(key);
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            throw new StorageFileNotFoundException("File not found: " + key, e);
+        }
+
+        long size = channel.size();
+        long start = 0;
+        long end = size - 1;
+        String contentRange = null;
+        if (range != null) {
+            long[] bounds = parseRange(range, size);
+            if (bounds == null) {
+                channel.close();
+                throw new StorageRangeNotSatisfiableException("Range not satisfiable for " + key + ": " + range);
+            }
+            start = bounds[0];
+            end = bounds[1];
+            contentRange = "bytes " + start + "-" + end + "/" + size;
+        }
+
+        return new FileChannelStream(channel, CertificateStorage.contentType(extensionOf(key)), start, end - start + 1, contentRange);
+    }
+
+    @Override
+    public void deleteFile(String key) {
+        try {
+            Files.deleteIfExists(resolve(key));
+            log.info("Local file deleted: {}", key);
+        } catch (IOException e) {
+            throw new StorageException("Failed to delete " + key, e);
+        }
+    }
+
+    @Override
+    public boolean fileExists(String key) {
+        return Files.isRegularFile(resolve(key));
+    }
+
+    @Override
+    public Map<String, Boolean> existsAll(Collection<String> keys) {
+        Map<String, List<String>> keysByPrefix = keys.stream()
+                .distinct()
+                .collect(Collectors.groupingBy(CertificateStorage::prefixOf));
+
+        Map<String, Boolean> result = new HashMap<>();
+        keysByPrefix.forEach((prefix, prefixKeys) -> {
+            Set<Path> existing = new HashSet<>();
+            Path directory = resolve(prefixKeys.get(0)).getParent();
+            if (Files.isDirectory(directory)) {
+                try (Stream<Path> files = Files.list(directory)) {
+                    files.forEach(existing::add);
+                } catch (IOException e) {
+                    throw new StorageException("Failed to list " + prefix, e);
+                }
+            }
+            prefixKeys.forEach(key -> result.put(key, existing.contains(resolve(key))));
+        });
+        return result;
+    }
+
+    /**
+     * Write atomically: the bytes go to a temp file in the target directory which is then moved into place,
+     * so readers never observe a partially written certificate.
+     */
+    private void write(String key, byte[] content) {
+        write(key, channel -> {
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        });
+    }
+
+    private void write(String key, ContentWriter writer) {
+        Path target = resolve(key);
+        Path tempFile = null;
+        try {
+            Files.createDirectories(target.getParent());
+            tempFile = Files.createTempFile(target.getParent(), ".upload-", ".tmp");
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                writer.write(channel);
+                channel.force(true);
+            }
+            try {
+                Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new StorageException("Failed to store " + key, e);
+        } finally {
+            if (tempFile != null) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (IOException ignored) {
+                    // best effort cleanup of the temp file
+                }
+            }
+        }
+    }
+
+    /**
+     * Map a storage key to its sharded path under the root directory
+     */
+    private Path resolve(String key) {
+        String[] segments = key.split("/");
+        Path path = rootDir;
+        for (int i = 0; i < segments.length; i++) {
+            if (i == 1 && segments.length > 2) {
+                path = path.resolve(segments[i].substring(0, Math.min(SHARD_LENGTH, segments[i].length())));
+            }
+            path = path.resolve(segments[i]);
+        }
+        path = path.normalize();
+        if (!path.startsWith(rootDir)) {
+            throw new StorageException("Cannot access file outside storage directory: " + key);
+        }
+        return path;
+    }
+
+    /**
+     * Parse a single "bytes=start-end" / "bytes=start-" / "bytes=-suffix" range; null when unsatisfiable
+     */
+    private static long[] parseRange(String range, long size) {
+        String spec = range.substring(range.indexOf('=') + 1).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0 || size == 0) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                long suffix = Long.parseLong(last);
+                start = Math.max(0, size - suffix);
+                end = size - 1;
+            } else {
+                start = Long.parseLong(first);
+                end = last.isEmpty() ? size - 1 : Math.min(Long.parseLong(last), size - 1);
+            }
+            return start <= end && start < size ? new long[]{start, end} : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String extensionOf(String key) {
+        int dot = key.lastIndexOf('.');
+        return dot >= 0 ? key.substring(dot + 1) : "";
+    }
+
+    /**
+     * Writes the content of a file into the temp file channel
+     */
+    @FunctionalInterface
+    private interface ContentWriter {
+        void write(FileChannel channel) throws IOException;
+    }
+
+    /**
+     * Serves a file region with FileChannel.transferTo, letting the OS copy without staging it in user space
+     */
+    private static class FileChannelStream extends CertificateFileStream {
+        private final FileChannel channel;
+        private final long position;
+        private final long count;
+
+        FileChannelStream(FileChannel channel, String contentType, long position, long count, String contentRange) {
+            super(Channels.newInputStream(channel), contentType, count, contentRange);
+            this.channel = channel;
+            this.position = position;
+            this.count = count;
+        }
+
+        @Override
+        public long transferTo(OutputStream out) throws IOException {
+            WritableByteChannel target = Channels.newChannel(out);
+            long transferred = 0;
+            while (transferred < count) {
+                long written = channel.transferTo(position + transferred, count - transferred, target);
+                if (written <= 0) {
+                    break;
+                }
+                transferred += written;
+            }
+            return transferred;
+        }
+    }
+}
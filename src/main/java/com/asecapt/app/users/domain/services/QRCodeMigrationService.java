@@ -0,0 +1,286 @@
+package com.asecapt.app.users.domain.services;
+
+import com.asecapt.app.users.application.dto.CertificateQRCodeRow;
+import com.asecapt.app.users.infrastructure.repository.CertificateRepository;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.ReaderException;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.QRCodeReader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Maintenance tool for moving between stored QR objects and on-the-fly rendering:
+ * VERIFY decodes every stored QR and checks it points at the certificate URL,
+ * BACKFILL stores rendered QRs for rows without a (present) object, and
+ * DETACH clears qr_code_path and deletes the object for rows whose stored QR verified.
+ * A run is a background job that walks the certificates in keyset chunks; progress is kept in memory for polling.
+ */
+@Slf4j
+@Service
+public class QRCodeMigrationService {
+
+    public enum Action { VERIFY, BACKFILL, DETACH }
+
+    private static final int CHUNK_SIZE = 500;
+    private static final int MAX_LISTED_CODES = 1000;
+    private static final Duration JOB_RETENTION = Duration.ofHours(24);
+
+    private final CertificateRepository certificateRepository;
+    private final CertificateService certificateService;
+    private final CertificateStorage certificateStorage;
+    private final QRCodeService qrCodeService;
+    private final CourseInitialsService courseInitialsService;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor certificateBatchExecutor;
+
+    private final Map<String, MigrationReport> jobs = new ConcurrentHashMap<>();
+    private final AtomicReference<MigrationReport> running = new AtomicReference<>();
+
+    public QRCodeMigrationService(CertificateRepository certificateRepository,
+                                  CertificateService certificateService,
+                                  CertificateStorage certificateStorage,
+                                  QRCodeService qrCodeService,
+                                  CourseInitialsService courseInitialsService,
+                                  TransactionTemplate transactionTemplate,
+                                  @Qualifier("certificateBatchExecutor") Executor certificateBatchExecutor) {
+        this.certificateRepository = certificateRepository;
+        this.certificateService = certificateService;
+        this.certificateStorage = certificateStorage;
+        this.qrCodeService = qrCodeService;
+        this.courseInitialsService = courseInitialsService;
+        this.transactionTemplate = transactionTemplate;
+        this.certificateBatchExecutor = certificateBatchExecutor;
+    }
+
+    /**
+     * Start a migration action over every certificate. With dryRun nothing is written or deleted,
+     * the report only counts what would change. Only one migration runs at a time.
+     * @throws IllegalStateException when a migration is already running or the batch executor is saturated
+     */
+    public MigrationReport submit(Action action, boolean dryRun) {
+        MigrationReport report = new MigrationReport(UUID.randomUUID().toString(), action, dryRun);
+        if (!running.compareAndSet(null, report)) {
+            throw new IllegalStateException("QR migration " + running.get().getJobId() + " is already running");
+        }
+        purgeExpiredJobs();
+        jobs.put(report.getJobId(), report);
+        try {
+            certificateBatchExecutor.execute(() -> run(report));
+        } catch (TaskRejectedException e) {
+            jobs.remove(report.getJobId());
+            running.set(null);
+            throw new IllegalStateException("Too many certificate jobs in progress, try again later");
+        }
+        return report;
+    }
+
+    public Optional<MigrationReport> getJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    private void run(MigrationReport report) {
+        report.status = "RUNNING";
+        try {
+            int afterId = 0;
+            List<CertificateQRCodeRow> rows;
+            do {
+                rows = certificateRepository.findQRCodeRowsAfter(afterId, PageRequest.of(0, CHUNK_SIZE));
+                if (!rows.isEmpty()) {
+                    migrateChunk(report, rows);
+                    afterId = rows.get(rows.size() - 1).id();
+                }
+            } while (rows.size() == CHUNK_SIZE);
+            report.status = "COMPLETED";
+        } catch (RuntimeException e) {
+            log.error("QR migration {} failed", report.getJobId(), e);
+            report.status = "FAILED";
+            report.message = e.getMessage();
+        } finally {
+            report.finishedAt = LocalDateTime.now();
+            running.set(null);
+        }
+        log.info("QR migration {} (dryRun={}) over {} certificates: {} verified, {} mismatched, {} missing, {} changed",
+            report.action, report.dryRun, report.total, report.verified, report.mismatchedCount, report.missingCount, report.changed);
+    }
+
+    private void migrateChunk(MigrationReport report, List<CertificateQRCodeRow> rows) {
+        Action action = report.action;
+        List<String> storedKeys = rows.stream()
+            .map(CertificateQRCodeRow::qrCodePath)
+            .filter(key -> key != null)
+            .toList();
+        Map<String, Boolean> existing = storedKeys.isEmpty() ? Map.of() : certificateStorage.existsAll(storedKeys);
+
+        for (CertificateQRCodeRow row : rows) {
+            report.total++;
+            boolean stored = row.qrCodePath() != null && existing.getOrDefault(row.qrCodePath(), false);
+            if (row.qrCodePath() == null) {
+                report.withoutStoredQr++;
+            } else if (!stored) {
+                report.missingCount++;
+                report.list(report.missing, row.certificateCode());
+            }
+
+            try {
+                switch (action) {
+                    case VERIFY -> {
+                        if (stored) {
+                            verify(row, report);
+                        }
+                    }
+                    case BACKFILL -> {
+                        if (!stored) {
+                            backfill(row, report.dryRun);
+                            report.changed++;
+                        }
+                    }
+                    case DETACH -> {
+                        if (stored && verify(row, report)) {
+                            detach(row, report.dryRun);
+                            report.changed++;
+                        }
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                log.warn("QR migration {} failed for certificate {}: {}", action, row.certificateCode(), e.getMessage());
+                report.errorCount++;
+                report.list(report.errors, row.certificateCode() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void purgeExpiredJobs() {
+        LocalDateTime threshold = LocalDateTime.now().minus(JOB_RETENTION);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(threshold));
+    }
+
+    /**
+     * Decode the stored QR and compare it with the current certificate URL (ignoring a signed token query)
+     */
+    private boolean verify(CertificateQRCodeRow row, MigrationReport report) throws IOException {
+        String expected = certificateService.buildCertificateUrl(row.certificateCode());
+        String decoded = decode(certificateStorage.downloadFile(row.qrCodePath()));
+        if (decoded != null && decoded.indexOf('?') >= 0) {
+            decoded = decoded.substring(0, decoded.indexOf('?'));
+        }
+        if (expected.equals(decoded)) {
+            report.verified++;
+            return true;
+        }
+        report.mismatchedCount++;
+        report.list(report.mismatched, row.certificateCode());
+        return false;
+    }
+
+    private void backfill(CertificateQRCodeRow row, boolean dryRun) {
+        if (row.documentNumber() == null) {
+            throw new RuntimeException("Student has no document number");
+        }
+        if (dryRun) {
+            return;
+        }
+        String courseInitials = courseInitialsService.generateCourseInitials(row.programTitle());
+        byte[] qrCode = qrCodeService.generateQRCodeBytes(certificateService.buildQRCodeUrl(
+            row.certificateCode(), row.documentNumber(), courseInitials, row.issuedDate()));
+        String key = certificateStorage.uploadQRCode(row.documentNumber(), courseInitials, row.certificateCode(), qrCode);
+        transactionTemplate.executeWithoutResult(status -> certificateRepository.updateQrCodePath(row.id(), key));
+    }
+
+    private void detach(CertificateQRCodeRow row, boolean dryRun) {
+        if (dryRun) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> certificateRepository.updateQrCodePath(row.id(), null));
+        certificateStorage.deleteFile(row.qrCodePath());
+    }
+
+    private static String decode(byte[] image) throws IOException {
+        BufferedImage bufferedImage = ImageIO.read(new ByteArrayInputStream(image));
+        if (bufferedImage == null) {
+            return null;
+        }
+        try {
+            return new QRCodeReader()
+                .decode(new BinaryBitmap(new HybridBinarizer(new BufferedImageLuminanceSource(bufferedImage))))
+                .getText();
+        } catch (ReaderException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Progress and outcome of a migration run. Counts cover every certificate; the certificate codes of
+     * missing/mismatched objects and errors are listed up to a limit.
+     */
+    public static class MigrationReport {
+        private final String jobId;
+        private final Action action;
+        private final boolean dryRun;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+        private volatile String status = "PENDING";
+        private volatile String message;
+        private volatile LocalDateTime finishedAt;
+        private volatile int total;
+        private volatile int withoutStoredQr;
+        private volatile int verified;
+        private volatile int changed;
+        private volatile int missingCount;
+        private volatile int mismatchedCount;
+        private volatile int errorCount;
+        private final List<String> missing = Collections.synchronizedList(new ArrayList<>());
+        private final List<String> mismatched = Collections.synchronizedList(new ArrayList<>());
+        private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+
+        MigrationReport(String jobId, Action action, boolean dryRun) {
+            this.jobId = jobId;
+            this.action = action;
+            this.dryRun = dryRun;
+        }
+
+        private void list(List<String> codes, String code) {
+            if (codes.size() < MAX_LISTED_CODES) {
+                codes.add(code);
+            }
+        }
+
+        public String getJobId() { return jobId; }
+        public Action getAction() { return action; }
+        public boolean isDryRun() { return dryRun; }
+        public String getStatus() { return status; }
+        public String getMessage() { return message; }
+        public LocalDateTime getCreatedAt() { return createdAt; }
+        public LocalDateTime getFinishedAt() { return finishedAt; }
+        public int getTotal() { return total; }
+        public int getWithoutStoredQr() { return withoutStoredQr; }
+        public int getVerified() { return verified; }
+        public int getChanged() { return changed; }
+        public int getMissingCount() { return missingCount; }
+        public int getMismatchedCount() { return mismatchedCount; }
+        public int getErrorCount() { return errorCount; }
+        public List<String> getMissing() { return missing; }
+        public List<String> getMismatched() { return mismatched; }
+        public List<String> getErrors() { return errors; }
+    }
+}
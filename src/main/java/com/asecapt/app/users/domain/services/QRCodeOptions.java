@@ -0,0 +1,24 @@
+package com.asecapt.app.users.domain.services;
+
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+
+/**
+ * Rendering options of a QR code image
+ * @param size            minimum width/height in pixels
+ * @param errorCorrection error-correction level
+ * @param quietZone       margin in modules around the symbol
+ */
+public record QRCodeOptions(int size, ErrorCorrectionLevel errorCorrection, int quietZone) {
+
+    public QRCodeOptions {
+        if (size <= 0) {
+            throw new IllegalArgumentException("QR code size must be positive");
+        }
+        if (quietZone < 0) {
+            throw new IllegalArgumentException("QR code quiet zone cannot be negative");
+        }
+        if (errorCorrection == null) {
+            errorCorrection = ErrorCorrectionLevel.L;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.asecapt.app.users.domain.services;
+
+import com.google.zxing.WriterException;
+import com.google.zxing.qrcode.encoder.ByteMatrix;
+import com.google.zxing.qrcode.encoder.Encoder;
+
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Renders QR codes straight into a 1-bit indexed PNG without BufferedImage or ImageIO.
+ * The module matrix is scaled row by row into a per-thread scanline buffer and compressed with a
+ * per-thread Deflater, so the only allocation per render is the resulting byte array.
+ */
+public final class QRCodePngEncoder {
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final byte[] IHDR = {'I', 'H', 'D', 'R'};
+    private static final byte[] PLTE = {'P', 'L', 'T', 'E'};
+    private static final byte[] IDAT = {'I', 'D', 'A', 'T'};
+    private static final byte[] IEND = {'I', 'E', 'N', 'D'};
+    /** Palette index 0 is white (light module), index 1 is black (dark module) */
+    private static final byte[] PALETTE = {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0, 0, 0};
+
+    private static final ThreadLocal<Workspace> WORKSPACE = ThreadLocal.withInitial(Workspace::new);
+
+    private QRCodePngEncoder() {
+    }
+
+    /**
+     * Encode text as a QR code PNG
+     */
+    public static byte[] encode(String text, QRCodeOptions options) throws WriterException {
+        return toPng(encodeMatrix(text, options), options);
+    }
+
+    /**
+     * Encode text into the raw QR module matrix (without quiet zone)
+     */
+    public static ByteMatrix encodeMatrix(String text, QRCodeOptions options) throws WriterException {
+        return Encoder.encode(text, options.errorCorrection()).getMatrix();
+    }
+
+    /**
+     * Write a module matrix as a PNG. Like QRCodeWriter, the image is at least options.size() pixels wide,
+     * each module is scaled by the largest integer factor that fits, and leftover pixels pad the quiet zone.
+     */
+    public static byte[] toPng(ByteMatrix matrix, QRCodeOptions options) {
+        int modules = matrix.getWidth();
+        int withQuietZone = modules + options.quietZone() * 2;
+        int size = Math.max(options.size(), withQuietZone);
+        int scale = size / withQuietZone;
+        int padding = (size - modules * scale) / 2;
+        int stride = (size + 7) / 8;
+        int lineLength = stride + 1;
+
+        Workspace workspace = WORKSPACE.get();
+        byte[] raw = workspace.raw(lineLength * size);
+        Arrays.fill(raw, 0, lineLength * size, (byte) 0);
+
+        for (int y = 0; y < modules; y++) {
+            int firstLine = padding + y * scale;
+            int offset = firstLine * lineLength + 1;
+            for (int x = 0; x < modules; x++) {
+                if (matrix.get(x, y) == 1) {
+                    setBits(raw, offset, padding + x * scale, scale);
+                }
+            }
+            for (int repeat = 1; repeat < scale; repeat++) {
+                System.arraycopy(raw, firstLine * lineLength, raw, (firstLine + repeat) * lineLength, lineLength);
+            }
+        }
+
+        int compressedLength = workspace.deflate(lineLength * size);
+
+        int length = PNG_SIGNATURE.length + (12 + 13) + (12 + PALETTE.length) + (12 + compressedLength) + 12;
+        byte[] png = new byte[length];
+        System.arraycopy(PNG_SIGNATURE, 0, png, 0, PNG_SIGNATURE.length);
+        int position = PNG_SIGNATURE.length;
+
+        byte[] header = workspace.header;
+        writeInt(header, 0, size);
+        writeInt(header, 4, size);
+        header[8] = 1;  // bit depth
+        header[9] = 3;  // color type: indexed
+        header[10] = 0; // compression
+        header[11] = 0; // filter
+        header[12] = 0; // no interlace
+        position = writeChunk(png, position, IHDR, header, 13, workspace.crc);
+        position = writeChunk(png, position, PLTE, PALETTE, PALETTE.length, workspace.crc);
+        position = writeChunk(png, position, IDAT, workspace.compressed, compressedLength, workspace.crc);
+        writeChunk(png, position, IEND, header, 0, workspace.crc);
+        return png;
+    }
+
+    /**
+     * Set count consecutive pixels starting at pixel x of the scanline at offset
+     */
+    private static void setBits(byte[] line, int offset, int x, int count) {
+        int end = x + count;
+        while (x < end && (x & 7) != 0) {
+            line[offset + (x >> 3)] |= (byte) (0x80 >>> (x & 7));
+            x++;
+        }
+        while (x + 8 <= end) {
+            line[offset + (x >> 3)] = (byte) 0xFF;
+            x += 8;
+        }
+        while (x < end) {
+            line[offset + (x >> 3)] |= (byte) (0x80 >>> (x & 7));
+            x++;
+        }
+    }
+
+    private static int writeChunk(byte[] png, int position, byte[] type, byte[] data, int length, CRC32 crc) {
+        writeInt(png, position, length);
+        System.arraycopy(type, 0, png, position + 4, 4);
+        System.arraycopy(data, 0, png, position + 8, length);
+        crc.reset();
+        crc.update(png, position + 4, length + 4);
+        writeInt(png, position + 8 + length, (int) crc.getValue());
+        return position + 12 + length;
+    }
+
+    private static void writeInt(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) (value >>> 24);
+        buffer[offset + 1] = (byte) (value >>> 16);
+        buffer[offset + 2] = (byte) (value >>> 8);
+        buffer[offset + 3] = (byte) value;
+    }
+
+    /**
+     * Per-thread buffers and Deflater reused across renders
+     */
+    private static final class Workspace {
+        private final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        private final CRC32 crc = new CRC32();
+        private final byte[] header = new byte[13];
+        private byte[] raw = new byte[0];
+        private byte[] compressed = new byte[4096];
+
+        byte[] raw(int length) {
+            if (raw.length < length) {
+                raw = new byte[length];
+            }
+            return raw;
+        }
+
+        int deflate(int length) {
+            deflater.reset();
+            deflater.setInput(raw, 0, length);
+            deflater.finish();
+            int total = 0;
+            while (!deflater.finished()) {
+                if (total == compressed.length) {
+                    compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                }
+                total += deflater.deflate(compressed, total, compressed.length - total);
+            }
+            return total;
+        }
+    }
+}
@@ -1,19 +1,21 @@
 package com.asecapt.app.users.domain.services;
 
-import com.google.zxing.BarcodeFormat;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.zxing.WriterException;
-import com.google.zxing.client.j2se.MatrixToImageWriter;
-import com.google.zxing.common.BitMatrix;
-import com.google.zxing.qrcode.QRCodeWriter;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import javax.imageio.ImageIO;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 
 @Service
 public class QRCodeService {
@@ -21,7 +23,51 @@ public class QRCodeService {
     @Value("${app.qrcodes.upload-dir:qrcodes}")
     private String qrCodesUploadDir;
     
-    private static final int QR_CODE_SIZE = 300;
+    public static final String CACHE_NAME = "qrCode";
+    
+    /** Output formats of a rendered QR code */
+    public enum Format {
+        PNG("image/png", "png"),
+        SVG("image/svg+xml", "svg");
+        
+        private final String contentType;
+        private final String extension;
+        
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+        
+        public String getContentType() {
+            return contentType;
+        }
+        
+        public String getExtension() {
+            return extension;
+        }
+    }
+    
+    private final QRCodeOptions defaultOptions;
+    
+    /** Rendered images keyed by encoded text + options + format; QR codes are deterministic so entries never go stale */
+    private final Cache<RenderKey, RenderedQRCode> renderCache;
+    
+    public QRCodeService(MeterRegistry meterRegistry,
+                         @Value("${app.qrcodes.size:300}") int size,
+                         @Value("${app.qrcodes.error-correction:L}") ErrorCorrectionLevel errorCorrection,
+                         @Value("${app.qrcodes.quiet-zone:4}") int quietZone,
+                         @Value("${app.qrcodes.cache.max-size:5000}") long cacheMaxSize) {
+        this.defaultOptions = new QRCodeOptions(size, errorCorrection, quietZone);
+        this.renderCache = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, renderCache, CACHE_NAME);
+    }
+    
+    public QRCodeOptions getDefaultOptions() {
+        return defaultOptions;
+    }
     
     /**
      * Generate QR code for given text and save it to file
@@ -39,24 +85,17 @@ public class QRCodeService {
                 Files.createDirectories(uploadPath);
             }
             
-            // Generate QR code
-            QRCodeWriter qrCodeWriter = new QRCodeWriter();
-            BitMatrix bitMatrix = qrCodeWriter.encode(text, BarcodeFormat.QR_CODE, QR_CODE_SIZE, QR_CODE_SIZE);
-            
-            // Convert to image
-            BufferedImage qrImage = MatrixToImageWriter.toBufferedImage(bitMatrix);
-            
-            // Save to file
+            // Generate QR code and save to file
             String qrFileName = fileName + "_qr.png";
             Path qrFilePath = uploadPath.resolve(qrFileName);
-            ImageIO.write(qrImage, "PNG", qrFilePath.toFile());
+            Files.write(qrFilePath, generateQRCodeBytes(text));
             
             String relativePath = Paths.get(qrCodesUploadDir, qrFileName).toString();
             System.out.println("QR code generated successfully: " + relativePath);
             
             return relativePath;
             
-        } catch (WriterException | IOException e) {
+        } catch (IOException e) {
             System.err.println("Error generating QR code: " + e.getMessage());
             e.printStackTrace();
             throw new RuntimeException("Failed to generate QR code", e);
@@ -69,21 +108,40 @@ public class QRCodeService {
      * @return The QR code as byte array
      */
     public byte[] generateQRCodeBytes(String text) {
-        try {
-            QRCodeWriter qrCodeWriter = new QRCodeWriter();
-            BitMatrix bitMatrix = qrCodeWriter.encode(text, BarcodeFormat.QR_CODE, QR_CODE_SIZE, QR_CODE_SIZE);
-            
-            BufferedImage qrImage = MatrixToImageWriter.toBufferedImage(bitMatrix);
-            
-            java.io.ByteArrayOutputStream baos = new java.io.ByteArrayOutputStream();
-            ImageIO.write(qrImage, "PNG", baos);
-            
-            return baos.toByteArray();
-            
-        } catch (WriterException | IOException e) {
-            System.err.println("Error generating QR code bytes: " + e.getMessage());
-            throw new RuntimeException("Failed to generate QR code", e);
-        }
+        return generateQRCodeBytes(text, defaultOptions);
+    }
+    
+    /**
+     * Generate QR code PNG with the given rendering options, served from the PNG cache when already rendered.
+     * Callers must not modify the returned array since it is shared with the cache.
+     * @param text The text to encode in QR code
+     * @param options Size, error-correction level and quiet zone
+     * @return The QR code as byte array
+     */
+    public byte[] generateQRCodeBytes(String text, QRCodeOptions options) {
+        return render(text, options, Format.PNG).content();
+    }
+    
+    /**
+     * Render a QR code in the given format through the render cache. Rendering is deterministic,
+     * so the returned ETag (a hash of the content) is stable across requests and restarts.
+     * @param text The text to encode in QR code
+     * @param options Size, error-correction level and quiet zone
+     * @param format PNG or SVG
+     * @return The rendered image with its strong ETag
+     */
+    public RenderedQRCode render(String text, QRCodeOptions options, Format format) {
+        return renderCache.get(new RenderKey(text, options, format), key -> {
+            try {
+                byte[] content = key.format() == Format.SVG
+                    ? QRCodeSvgEncoder.encode(key.text(), key.options())
+                    : QRCodePngEncoder.encode(key.text(), key.options());
+                return new RenderedQRCode(content, key.format(), etagOf(content));
+            } catch (WriterException e) {
+                System.err.println("Error generating QR code bytes: " + e.getMessage());
+                throw new RuntimeException("Failed to generate QR code", e);
+            }
+        });
     }
     
     /**
@@ -96,4 +154,22 @@ public class QRCodeService {
         System.out.println("Generating QR code bytes for certificate: " + certificateCode);
         return generateQRCodeBytes(text);
     }
-}
\ No newline at end of file
+    
+    private static String etagOf(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    /**
+     * A rendered QR image; content is shared with the cache and must not be modified
+     */
+    public record RenderedQRCode(byte[] content, Format format, String etag) {
+    }
+    
+    private record RenderKey(String text, QRCodeOptions options, Format format) {
+    }
+}
@@ -0,0 +1,59 @@
+package com.asecapt.app.users.domain.services;
+
+import com.google.zxing.WriterException;
+import com.google.zxing.qrcode.encoder.ByteMatrix;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Renders QR codes as resolution-independent SVG for print. Horizontal runs of dark modules are merged
+ * into one path segment each, with coordinates in module units.
+ */
+public final class QRCodeSvgEncoder {
+
+    private QRCodeSvgEncoder() {
+    }
+
+    /**
+     * Encode text as a QR code SVG document (UTF-8 bytes)
+     */
+    public static byte[] encode(String text, QRCodeOptions options) throws WriterException {
+        return toSvg(QRCodePngEncoder.encodeMatrix(text, options), options);
+    }
+
+    /**
+     * Write a module matrix as SVG; the viewBox includes the quiet zone and width/height use options.size()
+     */
+    public static byte[] toSvg(ByteMatrix matrix, QRCodeOptions options) {
+        int modules = matrix.getWidth();
+        int quietZone = options.quietZone();
+        int dimension = modules + quietZone * 2;
+
+        StringBuilder svg = new StringBuilder(modules * modules);
+        svg.append("<svg xmlns=\"http://www.w3.org/2000/svg\" version=\"1.1\" width=\"").append(options.size())
+            .append("\" height=\"").append(options.size())
+            .append("\" viewBox=\"0 0 ").append(dimension).append(' ').append(dimension)
+            .append("\" shape-rendering=\"crispEdges\">")
+            .append("<rect width=\"100%\" height=\"100%\" fill=\"#ffffff\"/>")
+            .append("<path fill=\"#000000\" d=\"");
+
+        for (int y = 0; y < modules; y++) {
+            int x = 0;
+            while (x < modules) {
+                if (matrix.get(x, y) != 1) {
+                    x++;
+                    continue;
+                }
+                int start = x;
+                while (x < modules && matrix.get(x, y) == 1) {
+                    x++;
+                }
+                svg.append('M').append(start + quietZone).append(' ').append(y + quietZone)
+                    .append('h').append(x - start).append("v1h-").append(x - start).append('z');
+            }
+        }
+
+        svg.append("\"/></svg>");
+        return svg.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
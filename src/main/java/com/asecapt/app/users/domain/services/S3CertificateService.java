@@ -1,8 +1,13 @@
 package com.asecapt.app.users.domain.services;
 
+import com.asecapt.app.users.application.exception.StorageException;
+import com.asecapt.app.users.application.exception.StorageRangeNotSatisfiableException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
@@ -10,11 +15,37 @@ import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
 import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
-public class S3CertificateService {
+@Profile("!local")
+public class S3CertificateService implements CertificateStorage {
+    
+    private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+    // Up to this many keys per prefix, one HeadObject per key is cheaper than listing the prefix
+    private static final int HEAD_LOOKUP_MAX_KEYS = 3;
     
     @Autowired
     private S3Client s3Client;
@@ -25,17 +56,25 @@ public class S3CertificateService {
     @Value("${asecapt.aws.region:${ASECAPT_AWS_REGION}}")
     private String region;
     
+    /** Streams larger than this are sent with a multipart upload, one part in memory at a time */
+    @Value("${app.certificates.storage.multipart-threshold:16MB}")
+    private DataSize multipartThreshold;
+    
+    @Value("${app.certificates.storage.multipart-part-size:8MB}")
+    private DataSize multipartPartSize;
+    
     /**
      * Subir certificado a S3
      */
+    @Override
     public String uploadCertificate(String dni, String courseInitials, String certificateCode, 
                                   byte[] fileContent, String fileExtension) {
-        String key = generateCertificateKey(dni, courseInitials, certificateCode, fileExtension);
+        String key = CertificateStorage.certificateKey(dni, courseInitials, certificateCode, fileExtension);
         
         PutObjectRequest putObjectRequest = PutObjectRequest.builder()
                 .bucket(bucketName)
                 .key(key)
-                .contentType(getContentType(fileExtension))
+                .contentType(CertificateStorage.contentType(fileExtension))
                 .build();
         
         s3Client.putObject(putObjectRequest, RequestBody.fromBytes(fileContent));
@@ -44,12 +83,103 @@ public class S3CertificateService {
         return key;
     }
     
+    /**
+     * Subir certificado a S3 bajo su clave direccionada por contenido (SHA-256)
+     */
+    @Override
+    public String uploadBlob(String contentHash, byte[] fileContent, String fileExtension) {
+        String key = CertificateStorage.blobKey(contentHash, fileExtension);
+        
+        PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .contentType(CertificateStorage.contentType(fileExtension))
+                .build();
+        
+        s3Client.putObject(putObjectRequest, RequestBody.fromBytes(fileContent));
+        
+        System.out.println("✅ Blob de certificado subido a S3: " + key);
+        return key;
+    }
+    
+    /**
+     * Subir certificado a S3 desde un stream: PutObject para archivos pequeños, carga multiparte por encima del umbral
+     */
+    @Override
+    public String uploadBlob(String contentHash, InputStream content, long size, String fileExtension) {
+        String key = CertificateStorage.blobKey(contentHash, fileExtension);
+        String contentType = CertificateStorage.contentType(fileExtension);
+        
+        if (size <= multipartThreshold.toBytes()) {
+            PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .contentType(contentType)
+                    .build();
+            s3Client.putObject(putObjectRequest, RequestBody.fromInputStream(content, size));
+        } else {
+            uploadMultipart(key, contentType, content, size);
+        }
+        
+        System.out.println("✅ Blob de certificado subido a S3 (" + size + " bytes): " + key);
+        return key;
+    }
+    
+    /**
+     * Carga multiparte reutilizando un único buffer del tamaño de parte; se aborta si algo falla
+     */
+    private void uploadMultipart(String key, String contentType, InputStream content, long size) {
+        String uploadId = s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .contentType(contentType)
+                .build()).uploadId();
+        try {
+            byte[] buffer = new byte[(int) Math.max(MIN_PART_SIZE, multipartPartSize.toBytes())];
+            List<CompletedPart> parts = new ArrayList<>();
+            long remaining = size;
+            for (int partNumber = 1; remaining > 0; partNumber++) {
+                int length = (int) Math.min(buffer.length, remaining);
+                if (content.readNBytes(buffer, 0, length) != length) {
+                    throw new IOException("Stream ended before " + size + " bytes");
+                }
+                String eTag = s3Client.uploadPart(UploadPartRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .uploadId(uploadId)
+                        .partNumber(partNumber)
+                        .contentLength((long) length)
+                        .build(), RequestBody.fromByteBuffer(ByteBuffer.wrap(buffer, 0, length))).eTag();
+                parts.add(CompletedPart.builder().partNumber(partNumber).eTag(eTag).build());
+                remaining -= length;
+            }
+            s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                    .build());
+        } catch (IOException | RuntimeException e) {
+            try {
+                s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .uploadId(uploadId)
+                        .build());
+            } catch (RuntimeException abortError) {
+                e.addSuppressed(abortError);
+            }
+            throw new StorageException("Error en la carga multiparte de " + key, e);
+        }
+    }
+    
     /**
      * Subir código QR a S3
      */
+    @Override
     public String uploadQRCode(String dni, String courseInitials, String certificateCode, 
                               byte[] qrContent) {
-        String key = generateQRKey(dni, courseInitials, certificateCode);
+        String key = CertificateStorage.qrCodeKey(dni, courseInitials, certificateCode);
         
         PutObjectRequest putObjectRequest = PutObjectRequest.builder()
                 .bucket(bucketName)
@@ -66,6 +196,7 @@ public class S3CertificateService {
     /**
      * Descargar archivo desde S3
      */
+    @Override
     public byte[] downloadFile(String key) throws IOException {
         GetObjectRequest getObjectRequest = GetObjectRequest.builder()
                 .bucket(bucketName)
@@ -77,9 +208,42 @@ public class S3CertificateService {
         }
     }
     
+    /**
+     * Abrir archivo de S3 como stream, opcionalmente solo un rango de bytes ("bytes=inicio-fin").
+     * El llamador debe cerrar el stream devuelto.
+     */
+    @Override
+    public CertificateFileStream openFile(String key, String range) {
+        GetObjectRequest.Builder requestBuilder = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key);
+        if (range != null) {
+            requestBuilder.range(range);
+        }
+        
+        ResponseInputStream<GetObjectResponse> responseInputStream;
+        try {
+            responseInputStream = s3Client.getObject(requestBuilder.build());
+        } catch (S3Exception e) {
+            if (e.statusCode() == HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value()) {
+                throw new StorageRangeNotSatisfiableException("Rango no satisfacible para " + key + ": " + range, e);
+            }
+            throw e;
+        }
+        GetObjectResponse response = responseInputStream.response();
+        
+        return new CertificateFileStream(
+                responseInputStream,
+                response.contentType(),
+                response.contentLength(),
+                range != null ? response.contentRange() : null
+        );
+    }
+    
     /**
      * Eliminar archivo de S3
      */
+    @Override
     public void deleteFile(String key) {
         DeleteObjectRequest deleteObjectRequest = DeleteObjectRequest.builder()
                 .bucket(bucketName)
@@ -90,36 +254,6 @@ public class S3CertificateService {
         System.out.println("🗑️ Archivo eliminado de S3: " + key);
     }
     
-    /**
-     * Generar key para certificado
-     */
-    private String generateCertificateKey(String dni, String courseInitials, 
-                                        String certificateCode, String extension) {
-        return String.format("certificates/%s/%s_%s.%s", 
-                           dni, courseInitials, certificateCode, extension);
-    }
-    
-    /**
-     * Generar key para código QR
-     */
-    private String generateQRKey(String dni, String courseInitials, String certificateCode) {
-        return String.format("certificates/%s/%s_%s_QR.png", 
-                           dni, courseInitials, certificateCode);
-    }
-    
-    /**
-     * Obtener content type basado en extensión
-     */
-    private String getContentType(String extension) {
-        switch (extension.toLowerCase()) {
-            case "pdf": return "application/pdf";
-            case "png": return "image/png";
-            case "jpg":
-            case "jpeg": return "image/jpeg";
-            default: return "application/octet-stream";
-        }
-    }
-    
     /**
      * Obtener URL pública del archivo (para acceso directo)
      */
@@ -129,19 +263,63 @@ public class S3CertificateService {
     }
     
     /**
-     * Verificar si un archivo existe en S3
+     * Verificar si un archivo existe en S3 (HeadObject, sin transferir el contenido)
      */
+    @Override
     public boolean fileExists(String key) {
         try {
-            GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+            s3Client.headObject(HeadObjectRequest.builder()
                     .bucket(bucketName)
                     .key(key)
-                    .build();
-            
-            s3Client.getObject(getObjectRequest).close();
+                    .build());
             return true;
-        } catch (Exception e) {
+        } catch (NoSuchKeyException e) {
             return false;
+        } catch (S3Exception e) {
+            if (e.statusCode() == HttpStatus.NOT_FOUND.value()) {
+                return false;
+            }
+            throw e;
         }
     }
+    
+    /**
+     * Verificar existencia de muchos archivos. Grupos pequeños de un prefijo se resuelven con HeadObject;
+     * los grandes con ListObjectsV2 paginado desde la primera clave pedida (startAfter) hasta la última,
+     * sin recorrer el resto del prefijo (blobs/xx/ contiene muchos objetos ajenos a la consulta)
+     */
+    @Override
+    public Map<String, Boolean> existsAll(Collection<String> keys) {
+        Map<String, List<String>> keysByPrefix = keys.stream()
+                .distinct()
+                .sorted()
+                .collect(Collectors.groupingBy(CertificateStorage::prefixOf));
+        
+        Map<String, Boolean> result = new HashMap<>();
+        keysByPrefix.forEach((prefix, prefixKeys) -> {
+            if (prefixKeys.size() <= HEAD_LOOKUP_MAX_KEYS) {
+                prefixKeys.forEach(key -> result.put(key, fileExists(key)));
+                return;
+            }
+            String first = prefixKeys.get(0);
+            String last = prefixKeys.get(prefixKeys.size() - 1);
+            Set<String> existing = new HashSet<>();
+            if (fileExists(first)) {
+                existing.add(first);
+            }
+            ListObjectsV2Request listRequest = ListObjectsV2Request.builder()
+                    .bucket(bucketName)
+                    .prefix(prefix)
+                    .startAfter(first)
+                    .build();
+            for (S3Object object : s3Client.listObjectsV2Paginator(listRequest).contents()) {
+                if (object.key().compareTo(last) > 0) {
+                    break;
+                }
+                existing.add(object.key());
+            }
+            prefixKeys.forEach(key -> result.put(key, existing.contains(key)));
+        });
+        return result;
+    }
 }
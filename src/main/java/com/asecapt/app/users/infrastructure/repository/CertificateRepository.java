@@ -1,13 +1,26 @@
 package com.asecapt.app.users.infrastructure.repository;
 
+import com.asecapt.app.users.application.dto.CertificateArchiveRow;
+import com.asecapt.app.users.application.dto.CertificateListItemDto;
+import com.asecapt.app.users.application.dto.CertificateQRCodeRow;
+import com.asecapt.app.users.application.dto.CertificateStoredKeysRow;
+import com.asecapt.app.users.application.dto.CertificateVerificationDto;
 import com.asecapt.app.users.domain.entities.Certificate;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface CertificateRepository extends JpaRepository<Certificate, Integer> {
@@ -47,6 +60,31 @@ public interface CertificateRepository extends JpaRepository<Certificate, Intege
      */
     boolean existsByEnrollmentIdAndIsActiveTrue(Integer enrollmentId);
     
+    /**
+     * Enrollment IDs among the given ones that already have an active certificate
+     */
+    @Query("SELECT c.enrollment.id FROM Certificate c WHERE c.enrollment.id IN :enrollmentIds AND c.isActive = true")
+    List<Integer> findEnrollmentIdsWithActiveCertificate(@Param("enrollmentIds") Collection<Integer> enrollmentIds);
+    
+    /**
+     * Stream every certificate code (must be consumed inside a transaction and closed)
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT c.certificateCode FROM Certificate c")
+    Stream<String> streamAllCertificateCodes();
+    
+    /**
+     * Codes of certificates created at or after the given time (incremental code filter refresh)
+     */
+    @Query("SELECT c.certificateCode FROM Certificate c WHERE c.createdAt >= :since")
+    List<String> findCertificateCodesCreatedSince(@Param("since") LocalDateTime since);
+    
+    /**
+     * Codes of all revoked (inactive) certificates
+     */
+    @Query("SELECT c.certificateCode FROM Certificate c WHERE c.isActive = false")
+    List<String> findInactiveCertificateCodes();
+    
     /**
      * Find all active certificates
      */
@@ -62,4 +100,95 @@ public interface CertificateRepository extends JpaRepository<Certificate, Intege
            "WHERE p.documentNumber = :documentNumber AND c.isActive = true " +
            "ORDER BY c.issuedDate DESC")
     List<Certificate> findByStudentDocumentNumber(@Param("documentNumber") String documentNumber);
-}
\ No newline at end of file
+    
+    String VERIFICATION_PROJECTION = "SELECT new com.asecapt.app.users.application.dto.CertificateVerificationDto(" +
+           "c.id, c.certificateCode, c.issuedDate, c.createdAt, c.isActive, " +
+           "p.firstName, p.lastName, p.documentNumber, p.email, " +
+           "pr.id, pr.title, pr.description, pr.duration, pr.credits, " +
+           "e.status, e.enrollmentDate, e.completionDate, e.finalGrade, e.attendancePercentage) " +
+           "FROM Certificate c " +
+           "JOIN c.enrollment e " +
+           "JOIN e.user u " +
+           "LEFT JOIN u.person p " +
+           "JOIN e.program pr ";
+    
+    /**
+     * Public verification read model by certificate code (single joined query)
+     */
+    @Query(VERIFICATION_PROJECTION + "WHERE c.certificateCode = :certificateCode")
+    Optional<CertificateVerificationDto> findVerificationByCertificateCode(@Param("certificateCode") String certificateCode);
+    
+    /**
+     * Public verification read models of active certificates by student document number (single joined query)
+     */
+    @Query(VERIFICATION_PROJECTION + "WHERE p.documentNumber = :documentNumber AND c.isActive = true " +
+           "ORDER BY c.issuedDate DESC")
+    List<CertificateVerificationDto> findVerificationsByStudentDocumentNumber(@Param("documentNumber") String documentNumber);
+    
+    /**
+     * Storage keys of all active certificates (storage audit), without loading the entities
+     */
+    @Query("SELECT new com.asecapt.app.users.application.dto.CertificateStoredKeysRow(c.filePath, c.qrCodePath) " +
+           "FROM Certificate c WHERE c.isActive = true")
+    List<CertificateStoredKeysRow> findActiveStoredKeys();
+    
+    /**
+     * Keyset page of QR code rows with an ID above afterId (single joined query, ordered by ID)
+     */
+    @Query("SELECT new com.asecapt.app.users.application.dto.CertificateQRCodeRow(" +
+           "c.id, c.certificateCode, c.qrCodePath, p.documentNumber, pr.title, c.issuedDate) " +
+           "FROM Certificate c " +
+           "JOIN c.enrollment e " +
+           "JOIN e.user u " +
+           "LEFT JOIN u.person p " +
+           "JOIN e.program pr " +
+           "WHERE c.id > :afterId " +
+           "ORDER BY c.id")
+    List<CertificateQRCodeRow> findQRCodeRowsAfter(@Param("afterId") Integer afterId, Pageable pageable);
+    
+    /**
+     * Set the stored QR code key of a certificate (null when the QR is rendered on request)
+     */
+    @Modifying
+    @Query("UPDATE Certificate c SET c.qrCodePath = :qrCodePath, c.updatedAt = CURRENT_TIMESTAMP WHERE c.id = :certificateId")
+    int updateQrCodePath(@Param("certificateId") Integer certificateId, @Param("qrCodePath") String qrCodePath);
+    
+    /**
+     * Archive rows of the active certificates of a program, oldest first (single joined query)
+     */
+    @Query("SELECT new com.asecapt.app.users.application.dto.CertificateArchiveRow(" +
+           "c.certificateCode, c.filePath, c.fileName, c.issuedDate, p.documentNumber, p.firstName, p.lastName) " +
+           "FROM Certificate c " +
+           "JOIN c.enrollment e " +
+           "JOIN e.user u " +
+           "LEFT JOIN u.person p " +
+           "WHERE e.program.id = :programId AND c.isActive = true " +
+           "ORDER BY c.issuedDate, c.id")
+    List<CertificateArchiveRow> findArchiveRowsByProgramId(@Param("programId") Integer programId);
+    
+    /**
+     * Keyset page of active certificates ordered by (issuedDate, id) descending, with optional filters.
+     * Pass the issuedDate/id of the last row of the previous page as the cursor (both null for the first page).
+     */
+    @Query("SELECT new com.asecapt.app.users.application.dto.CertificateListItemDto(" +
+           "c.id, c.certificateCode, c.issuedDate, c.isActive, e.id, pr.id, pr.title, p.documentNumber, p.firstName, p.lastName) " +
+           "FROM Certificate c " +
+           "JOIN c.enrollment e " +
+           "JOIN e.user u " +
+           "LEFT JOIN u.person p " +
+           "JOIN e.program pr " +
+           "WHERE c.isActive = true " +
+           "AND (:programId IS NULL OR pr.id = :programId) " +
+           "AND (:documentNumber IS NULL OR p.documentNumber = :documentNumber) " +
+           "AND (:issuedFrom IS NULL OR c.issuedDate >= :issuedFrom) " +
+           "AND (:issuedTo IS NULL OR c.issuedDate < :issuedTo) " +
+           "AND (:cursorDate IS NULL OR c.issuedDate < :cursorDate OR (c.issuedDate = :cursorDate AND c.id < :cursorId)) " +
+           "ORDER BY c.issuedDate DESC, c.id DESC")
+    List<CertificateListItemDto> findPage(@Param("programId") Integer programId,
+                                          @Param("documentNumber") String documentNumber,
+                                          @Param("issuedFrom") LocalDateTime issuedFrom,
+                                          @Param("issuedTo") LocalDateTime issuedTo,
+                                          @Param("cursorDate") LocalDateTime cursorDate,
+                                          @Param("cursorId") Integer cursorId,
+                                          Pageable pageable);
+}
@@ -0,0 +1,88 @@
+package com.asecapt.app.users.infrastructure.security;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-client token bucket implemented as GCRA (generic cell rate algorithm): each key holds a single
+ * "theoretical arrival time" updated with compare-and-set, so checks are lock-free and O(1).
+ * A key whose arrival time is in the past has a full bucket and is indistinguishable from an absent one,
+ * which is what the idle eviction removes. When maxKeys are tracked, new keys share one overflow bucket
+ * so memory stays bounded even under address spraying.
+ */
+@Slf4j
+@Component
+public class ClientRateLimiter {
+
+    private static final String OVERFLOW_KEY = "*";
+
+    private final long emissionIntervalNanos;
+    private final long toleranceNanos;
+    private final int maxKeys;
+    private final ConcurrentHashMap<String, AtomicLong> arrivals = new ConcurrentHashMap<>();
+
+    public ClientRateLimiter(MeterRegistry meterRegistry,
+                             @Value("${app.public-rate-limit.requests-per-minute:60}") int requestsPerMinute,
+                             @Value("${app.public-rate-limit.burst:20}") int burst,
+                             @Value("${app.public-rate-limit.max-keys:100000}") int maxKeys) {
+        this.emissionIntervalNanos = TimeUnit.MINUTES.toNanos(1) / Math.max(1, requestsPerMinute);
+        this.toleranceNanos = emissionIntervalNanos * (Math.max(1, burst) - 1);
+        this.maxKeys = maxKeys;
+
+        Gauge.builder("public.rate.limit.keys", arrivals, ConcurrentHashMap::size)
+            .description("Client keys currently tracked by the public rate limiter")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Take one request from the key's bucket
+     * @return Duration.ZERO when allowed, otherwise how long the client must wait
+     */
+    public Duration tryAcquire(String key) {
+        AtomicLong arrival = bucketOf(key);
+        while (true) {
+            long now = System.nanoTime();
+            long current = arrival.get();
+            long theoretical = current - now > 0 ? current : now;
+            long wait = theoretical - toleranceNanos - now;
+            if (wait > 0) {
+                return Duration.ofNanos(wait);
+            }
+            if (arrival.compareAndSet(current, theoretical + emissionIntervalNanos)) {
+                return Duration.ZERO;
+            }
+        }
+    }
+
+    /**
+     * Drop keys whose bucket has refilled completely
+     */
+    @Scheduled(fixedDelayString = "${app.public-rate-limit.eviction-interval-ms:60000}")
+    public void evictIdle() {
+        long now = System.nanoTime();
+        int before = arrivals.size();
+        arrivals.entrySet().removeIf(entry -> entry.getValue().get() - now <= 0);
+        int evicted = before - arrivals.size();
+        if (evicted > 0) {
+            log.debug("Evicted {} idle rate limit keys", evicted);
+        }
+    }
+
+    private AtomicLong bucketOf(String key) {
+        AtomicLong arrival = arrivals.get(key);
+        if (arrival != null) {
+            return arrival;
+        }
+        String bucketKey = arrivals.size() < maxKeys ? key : OVERFLOW_KEY;
+        return arrivals.computeIfAbsent(bucketKey, ignored -> new AtomicLong(System.nanoTime()));
+    }
+}
@@ -0,0 +1,87 @@
+package com.asecapt.app.users.infrastructure.security;
+
+import com.asecapt.app.commons.util.RequestUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Throttles the unauthenticated certificate endpoints so enumeration cannot starve admin traffic of
+ * database connections: a token bucket per client IP, plus a global cap on requests in flight.
+ * Rejected requests get 429 Too Many Requests with Retry-After.
+ */
+@Component
+public class PublicRateLimitInterceptor implements HandlerInterceptor {
+
+    private static final String PERMIT_ATTRIBUTE = PublicRateLimitInterceptor.class.getName() + ".permit";
+
+    private final ClientRateLimiter clientRateLimiter;
+    private final Semaphore inFlight;
+    private final Counter rateLimited;
+    private final Counter concurrencyLimited;
+
+    public PublicRateLimitInterceptor(ClientRateLimiter clientRateLimiter,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${app.public-rate-limit.max-concurrent:16}") int maxConcurrent) {
+        this.clientRateLimiter = clientRateLimiter;
+        this.inFlight = new Semaphore(maxConcurrent);
+        this.rateLimited = throttledCounter(meterRegistry, "rate");
+        this.concurrencyLimited = throttledCounter(meterRegistry, "concurrency");
+        Gauge.builder("public.rate.limit.in.flight", inFlight, permits -> maxConcurrent - permits.availablePermits())
+            .description("Public certificate requests currently being served")
+            .register(meterRegistry);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        Duration wait = clientRateLimiter.tryAcquire(RequestUtil.clientIp(request));
+        if (!wait.isZero()) {
+            rateLimited.increment();
+            reject(response, wait);
+            return false;
+        }
+        if (!inFlight.tryAcquire()) {
+            concurrencyLimited.increment();
+            reject(response, Duration.ofSeconds(1));
+            return false;
+        }
+        request.setAttribute(PERMIT_ATTRIBUTE, Boolean.TRUE);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(PERMIT_ATTRIBUTE) != null) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            inFlight.release();
+        }
+    }
+
+    private static void reject(HttpServletResponse response, Duration wait) throws IOException {
+        long retryAfterSeconds = Math.max(1, (wait.toMillis() + 999) / 1000);
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"success\":false,\"errorCode\":\"TOO_MANY_REQUESTS\"," +
+            "\"errorMessage\":\"Demasiadas solicitudes, intente nuevamente en " + retryAfterSeconds + " segundos\"}");
+    }
+
+    private static Counter throttledCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("public.rate.limit.throttled")
+            .description("Public certificate requests rejected with 429")
+            .tag("reason", reason)
+            .register(meterRegistry);
+    }
+}
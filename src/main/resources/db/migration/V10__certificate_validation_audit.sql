@@ -0,0 +1,7 @@
+-- Scans of unknown or revoked codes are audited too, so they have no certificate
+ALTER TABLE certificate_validation
+MODIFY COLUMN certificate_id INT NULL;
+
+-- Time-range and per-certificate audit queries
+CREATE INDEX idx_certificate_validation_validated_at ON certificate_validation(validated_at);
+CREATE INDEX idx_certificate_validation_certificate ON certificate_validation(certificate_id, validated_at);
@@ -0,0 +1,12 @@
+-- Hourly/daily pre-aggregated scan counts, upserted by the validation audit writer
+CREATE TABLE IF NOT EXISTS certificate_scan_rollup (
+    granularity VARCHAR(5) NOT NULL,
+    bucket_start DATETIME NOT NULL,
+    certificate_id INT NOT NULL,
+    validation_result VARCHAR(20) NOT NULL,
+    program_id INT NOT NULL,
+    scan_count BIGINT NOT NULL,
+    PRIMARY KEY (granularity, bucket_start, certificate_id, validation_result)
+);
+
+CREATE INDEX idx_scan_rollup_program ON certificate_scan_rollup(granularity, program_id, bucket_start);
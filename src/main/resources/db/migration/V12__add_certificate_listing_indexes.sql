@@ -0,0 +1,2 @@
+-- Keyset pagination of certificates ordered by (issued_date, id) descending
+CREATE INDEX idx_certificates_active_issued ON certificates(is_active, issued_date, id);
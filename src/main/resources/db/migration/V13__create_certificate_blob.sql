@@ -0,0 +1,15 @@
+-- Content-addressed certificate files: one stored object per distinct SHA-256, shared by every certificate
+-- with the same bytes. Rows whose ref_count stayed at 0 past the grace period are garbage collected.
+CREATE TABLE IF NOT EXISTS certificate_blob (
+    content_hash CHAR(64) NOT NULL,
+    storage_key VARCHAR(255) NOT NULL,
+    size_bytes BIGINT NOT NULL,
+    ref_count INT NOT NULL,
+    created_at DATETIME NOT NULL,
+    updated_at DATETIME NOT NULL,
+    PRIMARY KEY (content_hash)
+);
+
+CREATE INDEX idx_certificate_blob_unreferenced ON certificate_blob(ref_count, updated_at);
+
+ALTER TABLE certificates ADD COLUMN content_hash CHAR(64) NULL;
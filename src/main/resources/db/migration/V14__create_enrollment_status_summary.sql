@@ -0,0 +1,13 @@
+-- Non-deleted enrollments per student and status, maintained by the application on every status change
+CREATE TABLE IF NOT EXISTS enrollment_status_summary (
+    user_id INT NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    enrollment_count INT NOT NULL,
+    PRIMARY KEY (user_id, status)
+);
+
+INSERT INTO enrollment_status_summary (user_id, status, enrollment_count)
+SELECT user_id, status, COUNT(*)
+FROM enrollment
+WHERE deleted = FALSE
+GROUP BY user_id, status;
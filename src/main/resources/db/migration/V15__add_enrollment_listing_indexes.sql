@@ -0,0 +1,4 @@
+-- Keyset pagination of enrollments ordered by (enrollment_date, id) descending, filtered by deleted, status or program
+CREATE INDEX idx_enrollment_deleted_date ON enrollment(deleted, enrollment_date, id);
+CREATE INDEX idx_enrollment_status_date ON enrollment(status, deleted, enrollment_date, id);
+CREATE INDEX idx_enrollment_program_date ON enrollment(program_id, deleted, enrollment_date, id);
@@ -0,0 +1,6 @@
+-- Prefix search of completed enrollments by student name, email and program title
+-- (person.document_number is already covered by its unique index)
+CREATE INDEX idx_person_last_name ON person(last_name);
+CREATE INDEX idx_person_first_name ON person(first_name);
+CREATE INDEX idx_person_email ON person(email);
+CREATE INDEX idx_program_title ON program(title);
@@ -0,0 +1,2 @@
+-- Incremental refresh of the certificate code filter reads the codes created since the previous refresh
+CREATE INDEX idx_certificates_created_at ON certificates(created_at);
@@ -0,0 +1,7 @@
+-- Signed QR tokens superseded when a certificate's issued date changes (certificate code + the issued date they carry)
+CREATE TABLE IF NOT EXISTS certificate_token_revocation (
+    certificate_code VARCHAR(64) NOT NULL,
+    issued_date DATE NOT NULL,
+    revoked_at DATETIME NOT NULL,
+    PRIMARY KEY (certificate_code, issued_date)
+);
@@ -0,0 +1,57 @@
+package com.asecapt.app.commons.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.NullAndEmptySource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CursorUtilTest {
+
+    @Test
+    void decodeReturnsTheEncodedPosition() {
+        LocalDateTime timestamp = LocalDateTime.of(2024, 3, 9, 14, 5, 7, 123_000_000);
+
+        String cursor = CursorUtil.encode(timestamp, 4711);
+
+        assertThat(cursor).matches("[A-Za-z0-9_-]+");
+        assertThat(CursorUtil.decode(cursor)).isEqualTo(new CursorUtil.Cursor(timestamp, 4711));
+    }
+
+    @Test
+    void roundTripKeepsWholeSecondTimestamps() {
+        LocalDateTime timestamp = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+        assertThat(CursorUtil.decode(CursorUtil.encode(timestamp, 1))).isEqualTo(new CursorUtil.Cursor(timestamp, 1));
+    }
+
+    @ParameterizedTest
+    @NullAndEmptySource
+    @ValueSource(strings = {"   "})
+    void blankCursorMeansFirstPage(String cursor) {
+        assertThat(CursorUtil.decode(cursor)).isNull();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"2024-01-01T00:00", "2024-01-01T00:00|", "yesterday|12", "2024-01-01T00:00|abc"})
+    void malformedCursorIsRejected(String raw) {
+        String cursor = Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+
+        assertThatThrownBy(() -> CursorUtil.decode(cursor))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("Invalid cursor");
+    }
+
+    @Test
+    void nonBase64CursorIsRejected() {
+        assertThatThrownBy(() -> CursorUtil.decode("not base64!"))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("Invalid cursor");
+    }
+}
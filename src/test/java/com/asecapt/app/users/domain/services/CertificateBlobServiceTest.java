@@ -0,0 +1,145 @@
+package com.asecapt.app.users.domain.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Blob bookkeeping against an in-memory H2 database (MySQL mode) with the V13 schema; storage is mocked
+ */
+class CertificateBlobServiceTest {
+
+    private static final byte[] PDF = "%PDF-1.7 certificate".getBytes(StandardCharsets.UTF_8);
+
+    private final CertificateStorage certificateStorage = mock(CertificateStorage.class);
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private JdbcTemplate jdbcTemplate;
+    private CertificateBlobService blobService;
+
+    @BeforeEach
+    void setUp() {
+        SimpleDriverDataSource dataSource = new SimpleDriverDataSource(new org.h2.Driver(),
+            "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE certificate_blob (content_hash CHAR(64) NOT NULL, " +
+            "storage_key VARCHAR(255) NOT NULL, size_bytes BIGINT NOT NULL, ref_count INT NOT NULL, " +
+            "created_at DATETIME NOT NULL, updated_at DATETIME NOT NULL, PRIMARY KEY (content_hash))");
+        when(certificateStorage.uploadBlob(anyString(), any(byte[].class), anyString()))
+            .thenAnswer(call -> CertificateStorage.blobKey(call.getArgument(0), call.getArgument(2)));
+        when(certificateStorage.uploadBlob(anyString(), any(InputStream.class), anyLong(), anyString()))
+            .thenAnswer(call -> {
+                call.getArgument(1, InputStream.class).transferTo(OutputStream.nullOutputStream());
+                return CertificateStorage.blobKey(call.getArgument(0), call.getArgument(3));
+            });
+        blobService = new CertificateBlobService(certificateStorage, jdbcTemplate,
+            new TransactionTemplate(new DataSourceTransactionManager(dataSource)), meterRegistry,
+            Duration.ofDays(7), DataSize.ofBytes(8));
+    }
+
+    @Test
+    void storesNewContentUnderItsHash() {
+        CertificateBlobService.StoredBlob blob = blobService.store(PDF, "PDF");
+
+        assertThat(blob.contentHash()).hasSize(64);
+        assertThat(blob.storageKey()).isEqualTo(CertificateStorage.blobKey(blob.contentHash(), "pdf"));
+        assertThat(blob.deduplicated()).isFalse();
+        assertThat(refCount(blob.contentHash())).isEqualTo(1);
+    }
+
+    @Test
+    void identicalContentIsUploadedOnceAndReferenced() {
+        CertificateBlobService.StoredBlob first = blobService.store(PDF, "pdf");
+        CertificateBlobService.StoredBlob second = blobService.store(PDF.clone(), "pdf");
+
+        assertThat(second.deduplicated()).isTrue();
+        assertThat(second.storageKey()).isEqualTo(first.storageKey());
+        assertThat(refCount(first.contentHash())).isEqualTo(2);
+        verify(certificateStorage, times(1)).uploadBlob(anyString(), any(byte[].class), anyString());
+    }
+
+    @Test
+    void spooledFileIsStreamedAndHashedLikeBytes(@TempDir Path directory) throws IOException {
+        Path file = Files.write(directory.resolve("0.pdf"), PDF);
+
+        CertificateBlobService.StoredBlob streamed = blobService.store(file, "pdf");
+        CertificateBlobService.StoredBlob inMemory = blobService.store(PDF, "pdf");
+
+        assertThat(streamed.size()).isEqualTo(PDF.length);
+        assertThat(inMemory.contentHash()).isEqualTo(streamed.contentHash());
+        assertThat(inMemory.deduplicated()).isTrue();
+        verify(certificateStorage).uploadBlob(eq(streamed.contentHash()), any(InputStream.class), eq((long) PDF.length), eq("pdf"));
+    }
+
+    @Test
+    void releaseDropsOneReferenceAndNeverGoesNegative() {
+        CertificateBlobService.StoredBlob blob = blobService.store(PDF, "pdf");
+
+        blobService.release(blob.contentHash());
+        blobService.release(blob.contentHash());
+        blobService.release(null);
+
+        assertThat(refCount(blob.contentHash())).isZero();
+    }
+
+    @Test
+    void garbageCollectionDeletesOnlyUnreferencedBlobsPastTheGracePeriod() {
+        CertificateBlobService.StoredBlob expired = blobService.store(PDF, "pdf");
+        CertificateBlobService.StoredBlob recent = blobService.store("other".getBytes(StandardCharsets.UTF_8), "pdf");
+        CertificateBlobService.StoredBlob referenced = blobService.store("third".getBytes(StandardCharsets.UTF_8), "pdf");
+        blobService.release(expired.contentHash());
+        blobService.release(recent.contentHash());
+        jdbcTemplate.update("UPDATE certificate_blob SET updated_at = DATEADD('DAY', -8, updated_at) WHERE content_hash IN (?, ?)",
+            expired.contentHash(), referenced.contentHash());
+
+        assertThat(blobService.collectGarbage()).isEqualTo(1);
+
+        verify(certificateStorage).deleteFile(expired.storageKey());
+        verify(certificateStorage, never()).deleteFile(recent.storageKey());
+        verify(certificateStorage, never()).deleteFile(referenced.storageKey());
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM certificate_blob", Integer.class)).isEqualTo(2);
+    }
+
+    @Test
+    void storingAgainAfterCollectionUploadsAgain() {
+        CertificateBlobService.StoredBlob blob = blobService.store(PDF, "pdf");
+        blobService.release(blob.contentHash());
+        jdbcTemplate.update("UPDATE certificate_blob SET updated_at = DATEADD('DAY', -8, updated_at)");
+        blobService.collectGarbage();
+
+        CertificateBlobService.StoredBlob again = blobService.store(PDF, "pdf");
+
+        assertThat(again.deduplicated()).isFalse();
+        verify(certificateStorage, times(2)).uploadBlob(anyString(), any(byte[].class), anyString());
+    }
+
+    private int refCount(String contentHash) {
+        return jdbcTemplate.queryForObject("SELECT ref_count FROM certificate_blob WHERE content_hash = ?", Integer.class, contentHash);
+    }
+}
@@ -0,0 +1,90 @@
+package com.asecapt.app.users.domain.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CertificateCodeGeneratorTest {
+
+    private static final String ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ";
+
+    private final CertificateCodeGenerator generator = new CertificateCodeGenerator(7);
+
+    @Test
+    void generatesWellFormedCodes() {
+        String code = generator.generate("Ingeniería de Seguridad", "70123456");
+
+        assertThat(code).startsWith("CERT-ING-3456-" + LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd")) + "-");
+        assertThat(generator.isWellFormed(code)).isTrue();
+    }
+
+    @Test
+    void checkSymbolDetectsASingleChangedCharacter() {
+        String code = generator.generate("Seguridad", "70123456");
+        int idStart = code.length() - 12;
+
+        for (int i = idStart; i < code.length() - 1; i++) {
+            char original = code.charAt(i);
+            char replacement = ALPHABET.charAt((ALPHABET.indexOf(original) + 1) % ALPHABET.length());
+            String altered = code.substring(0, i) + replacement + code.substring(i + 1);
+            assertThat(generator.isWellFormed(altered)).as(altered).isFalse();
+        }
+    }
+
+    @Test
+    void checkSymbolDetectsSwappedCharacters() {
+        String code = generator.generate("Seguridad", "70123456");
+        int idStart = code.length() - 12;
+
+        for (int i = idStart; i < code.length() - 2; i++) {
+            if (code.charAt(i) == code.charAt(i + 1)) {
+                continue;
+            }
+            String swapped = code.substring(0, i) + code.charAt(i + 1) + code.charAt(i) + code.substring(i + 2);
+            assertThat(generator.isWellFormed(swapped)).as(swapped).isFalse();
+        }
+    }
+
+    @Test
+    void acceptsLegacyCodesAndRejectsGarbage() {
+        assertThat(generator.isWellFormed("CERT-SEG-3456-20231105-A1B2C3")).isTrue();
+        assertThat(generator.isWellFormed("CERT-SEG-3456-20231105-a1b2c3")).isFalse();
+        assertThat(generator.isWellFormed("certificate")).isFalse();
+        assertThat(generator.isWellFormed(null)).isFalse();
+    }
+
+    @Test
+    void codesAreUniqueWithinABurst() {
+        Set<String> codes = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            codes.add(generator.generate("Seguridad", "70123456"));
+        }
+
+        assertThat(codes).hasSize(10_000);
+    }
+
+    @Test
+    void nodeIdIsRequiredAndBounded() {
+        assertThatThrownBy(() -> new CertificateCodeGenerator(-1)).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> new CertificateCodeGenerator(1024)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void issuedAtDecodesTheEmbeddedSecond() {
+        Instant before = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        String code = generator.generate("Seguridad", "70123456");
+
+        assertThat(generator.issuedAt(code)).hasValueSatisfying(issuedAt ->
+            assertThat(issuedAt).isBetween(before, Instant.now().plusSeconds(1)));
+        assertThat(generator.issuedAt("CERT-SEG-3456-20231105-A1B2C3")).isEmpty();
+        assertThat(generator.issuedAt(null)).isEmpty();
+    }
+}
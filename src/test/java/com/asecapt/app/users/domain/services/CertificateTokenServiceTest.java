@@ -0,0 +1,170 @@
+package com.asecapt.app.users.domain.services;
+
+import com.asecapt.app.users.domain.entities.CertificateTokenRevocation;
+import com.asecapt.app.users.domain.repository.CertificateTokenRevocationRepository;
+import com.asecapt.app.users.infrastructure.repository.CertificateRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CertificateTokenServiceTest {
+
+    private static final String CODE = "CERT-SEG-3456-20240315-0123456789AB";
+    private static final LocalDate ISSUED = LocalDate.of(2024, 3, 15);
+
+    private final CertificateRepository certificateRepository = mock(CertificateRepository.class);
+    private final CertificateTokenRevocationRepository revocationRepository = mock(CertificateTokenRevocationRepository.class);
+    private CertificateTokenService tokenService;
+
+    @BeforeEach
+    void setUp() {
+        when(certificateRepository.findInactiveCertificateCodes()).thenReturn(List.of());
+        when(revocationRepository.findAll()).thenReturn(List.of());
+        tokenService = new CertificateTokenService(certificateRepository, revocationRepository, "test-secret");
+        tokenService.refreshRevocations();
+    }
+
+    @Test
+    void verifyReturnsTheSignedClaims() {
+        String token = tokenService.issue(CODE, "70123456", "SST", ISSUED);
+
+        CertificateTokenService.TokenClaims claims = tokenService.verify(token).orElseThrow();
+
+        assertThat(claims.certificateCode()).isEqualTo(CODE);
+        assertThat(claims.programInitials()).isEqualTo("SST");
+        assertThat(claims.issuedDate()).isEqualTo(ISSUED);
+        assertThat(tokenService.matchesDocument(claims, " 70123456 ")).isTrue();
+        assertThat(tokenService.matchesDocument(claims, "70123457")).isFalse();
+    }
+
+    @Test
+    void tamperedPayloadIsRejected() {
+        String token = tokenService.issue(CODE, "70123456", "SST", ISSUED);
+        String payload = new String(Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.'))), StandardCharsets.UTF_8);
+        String forged = Base64.getUrlEncoder().withoutPadding()
+            .encodeToString(payload.replace("SST", "MBA").getBytes(StandardCharsets.UTF_8)) + token.substring(token.indexOf('.'));
+
+        assertThat(tokenService.verify(forged)).isEmpty();
+    }
+
+    @Test
+    void tokenSignedWithAnotherSecretIsRejected() {
+        CertificateTokenService other = new CertificateTokenService(certificateRepository, revocationRepository, "other-secret");
+
+        assertThat(tokenService.verify(other.issue(CODE, "70123456", "SST", ISSUED))).isEmpty();
+    }
+
+    @Test
+    void malformedTokensAreRejected() {
+        assertThat(tokenService.verify(null)).isEmpty();
+        assertThat(tokenService.verify("")).isEmpty();
+        assertThat(tokenService.verify("no-dot")).isEmpty();
+        assertThat(tokenService.verify(".signature")).isEmpty();
+        assertThat(tokenService.verify("!!!.???")).isEmpty();
+    }
+
+    @Test
+    void disabledWithoutSecret() {
+        CertificateTokenService disabled = new CertificateTokenService(certificateRepository, revocationRepository, " ");
+
+        assertThat(disabled.isEnabled()).isFalse();
+        assertThat(disabled.verify(tokenService.issue(CODE, "70123456", "SST", ISSUED))).isEmpty();
+        assertThatThrownBy(() -> disabled.issue(CODE, "70123456", "SST", ISSUED)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void revokeAppliesOnThisNodeImmediately() {
+        assertThat(tokenService.isRevoked(CODE)).isFalse();
+
+        tokenService.revoke(CODE);
+
+        assertThat(tokenService.isRevoked(CODE)).isTrue();
+    }
+
+    @Test
+    void refreshLoadsCodesRevokedOnOtherNodes() {
+        tokenService.refreshRevocations();
+        assertThat(tokenService.isRevoked(CODE)).isFalse();
+
+        when(certificateRepository.findInactiveCertificateCodes()).thenReturn(List.of(CODE));
+        tokenService.refreshRevocations();
+
+        assertThat(tokenService.isRevoked(CODE)).isTrue();
+    }
+
+    @Test
+    void supersedeRejectsOnlyTokensOfThePreviousIssuedDate() {
+        CertificateTokenService.TokenClaims old = tokenService.verify(tokenService.issue(CODE, "70123456", "SST", ISSUED)).orElseThrow();
+        CertificateTokenService.TokenClaims reissued =
+            tokenService.verify(tokenService.issue(CODE, "70123456", "SST", ISSUED.plusDays(1))).orElseThrow();
+
+        tokenService.supersede(CODE, ISSUED, ISSUED.plusDays(1));
+
+        verify(revocationRepository).save(any(CertificateTokenRevocation.class));
+        assertThat(tokenService.isSuperseded(old)).isTrue();
+        assertThat(tokenService.isSuperseded(reissued)).isFalse();
+        assertThat(tokenService.isRevoked(CODE)).isFalse();
+    }
+
+    @Test
+    void refreshLoadsTokensSupersededOnOtherNodes() {
+        CertificateTokenService.TokenClaims old = tokenService.verify(tokenService.issue(CODE, "70123456", "SST", ISSUED)).orElseThrow();
+        assertThat(tokenService.isSuperseded(old)).isFalse();
+
+        when(revocationRepository.findAll())
+            .thenReturn(List.of(new CertificateTokenRevocation(CODE, ISSUED, LocalDateTime.now())));
+        tokenService.refreshRevocations();
+
+        assertThat(tokenService.isSuperseded(old)).isTrue();
+    }
+
+    @Test
+    void returningToAnEarlierDateAcceptsItsTokensAgain() {
+        CertificateTokenService.TokenClaims original =
+            tokenService.verify(tokenService.issue(CODE, "70123456", "SST", ISSUED)).orElseThrow();
+
+        tokenService.supersede(CODE, ISSUED, ISSUED.plusDays(1));
+        assertThat(tokenService.isSuperseded(original)).isTrue();
+        tokenService.supersede(CODE, ISSUED.plusDays(1), ISSUED);
+
+        verify(revocationRepository).deleteByCertificateCodeAndIssuedDate(CODE, ISSUED);
+        assertThat(tokenService.isSuperseded(original)).isFalse();
+    }
+
+    @Test
+    void reinstatedDateIsDroppedFromTheRefreshedSet() {
+        CertificateTokenService.TokenClaims original =
+            tokenService.verify(tokenService.issue(CODE, "70123456", "SST", ISSUED)).orElseThrow();
+        when(revocationRepository.findAll())
+            .thenReturn(List.of(new CertificateTokenRevocation(CODE, ISSUED, LocalDateTime.now())));
+        tokenService.refreshRevocations();
+        assertThat(tokenService.isSuperseded(original)).isTrue();
+
+        tokenService.supersede(CODE, ISSUED.plusDays(1), ISSUED);
+
+        assertThat(tokenService.isSuperseded(original)).isFalse();
+    }
+
+    @Test
+    void refreshForgetsLocalSupersedesReinstatedOnAnotherNode() {
+        CertificateTokenService.TokenClaims original =
+            tokenService.verify(tokenService.issue(CODE, "70123456", "SST", ISSUED)).orElseThrow();
+        tokenService.supersede(CODE, ISSUED, ISSUED.plusDays(1));
+
+        tokenService.refreshRevocations();
+
+        assertThat(tokenService.isSuperseded(original)).isFalse();
+    }
+}
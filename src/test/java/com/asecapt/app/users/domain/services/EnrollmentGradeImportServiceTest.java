@@ -0,0 +1,82 @@
+package com.asecapt.app.users.domain.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.LineNumberReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class EnrollmentGradeImportServiceTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final EnrollmentGradeImportService importService = new EnrollmentGradeImportService(jdbcTemplate,
+        mock(TransactionTemplate.class), mock(EnrollmentSummaryService.class), mock(CertificateVerificationCache.class));
+
+    @Test
+    void splitsOnTheDelimiterAndTrimsFields() throws IOException {
+        assertThat(parse("70123456, 15.5 ,90", ',')).containsExactly("70123456", "15.5", "90");
+        assertThat(parse("70123456;15,5;90", ';')).containsExactly("70123456", "15,5", "90");
+    }
+
+    @Test
+    void keepsEmptyFields() throws IOException {
+        assertThat(parse("70123456,,", ',')).containsExactly("70123456", "", "");
+    }
+
+    @Test
+    void quotedFieldsMayContainDelimitersAndEscapedQuotes() throws IOException {
+        assertThat(parse("\"Quispe, Ana\";\"15,5\";\"dijo \"\"presente\"\"\"", ';'))
+            .containsExactly("Quispe, Ana", "15,5", "dijo \"presente\"");
+    }
+
+    @Test
+    void quotedFieldMaySpanLines() throws IOException {
+        LineNumberReader reader = new LineNumberReader(new StringReader("segunda línea\",18\n70999999,12"));
+
+        assertThat(EnrollmentGradeImportService.parseRecord("70123456,\"primera", reader, ','))
+            .containsExactly("70123456", "primera\nsegunda línea", "18");
+        assertThat(reader.readLine()).isEqualTo("70999999,12");
+    }
+
+    @Test
+    void unterminatedQuoteEndsAtEndOfFile() throws IOException {
+        assertThat(parse("70123456,\"15", ',')).containsExactly("70123456", "15");
+    }
+
+    @Test
+    void detectsSemicolonDelimiterAndStripsTheByteOrderMark() throws IOException {
+        String csv = "\uFEFFDNI;Nota;Asistencia\n70123456;abc;90\n";
+
+        EnrollmentGradeImportService.ImportReport report = importGrades(csv);
+
+        assertThat(report.getTotal()).isEqualTo(1);
+        assertThat(report.getRows()).singleElement().satisfies(row -> {
+            assertThat(row.documentNumber()).isEqualTo("70123456");
+            assertThat(row.message()).isEqualTo("Grade is not a number: abc");
+        });
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void headerWithoutDniColumnIsRejected() {
+        assertThatThrownBy(() -> importGrades("Nombre,Nota\nAna,15\n")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static List<String> parse(String line, char delimiter) throws IOException {
+        return EnrollmentGradeImportService.parseRecord(line, new LineNumberReader(new StringReader("")), delimiter);
+    }
+
+    private EnrollmentGradeImportService.ImportReport importGrades(String csv) throws IOException {
+        return importService.importGrades(1, new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), false);
+    }
+}
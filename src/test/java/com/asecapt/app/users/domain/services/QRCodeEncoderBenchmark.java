@@ -0,0 +1,67 @@
+package com.asecapt.app.users.domain.services;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.WriterException;
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.imageio.ImageIO;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Render time of a certificate QR code at the default options (300 px, level L, quiet zone 4):
+ * the 1-bit PNG encoder against the QRCodeWriter + BufferedImage + ImageIO path it replaced.
+ * Not a unit test; run with
+ * <pre>
+ * mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     -Dexec.args="-cp %classpath com.asecapt.app.users.domain.services.QRCodeEncoderBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QRCodeEncoderBenchmark {
+
+    private static final String URL = "https://asecapt.com/verify/CERT-SEG-3456-20240315-01HXZ4K9M2QT"
+        + "?token=MX5DRVJULVNFRy0zNDU2LTIwMjQwMzE1LTAxSFhaNEs5TTJRVH5hYmNkZWZnaGlqa35TU1R-NGs3.c2lnbmF0dXJlMTIzNDU2";
+    private static final QRCodeOptions OPTIONS = new QRCodeOptions(300, ErrorCorrectionLevel.L, 4);
+
+    @Benchmark
+    public byte[] oneBitPng() throws WriterException {
+        return QRCodePngEncoder.encode(URL, OPTIONS);
+    }
+
+    @Benchmark
+    public byte[] bufferedImageIO() throws WriterException, IOException {
+        BitMatrix matrix = new QRCodeWriter().encode(URL, BarcodeFormat.QR_CODE, OPTIONS.size(), OPTIONS.size(),
+            Map.of(EncodeHintType.ERROR_CORRECTION, OPTIONS.errorCorrection(), EncodeHintType.MARGIN, OPTIONS.quietZone()));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(MatrixToImageWriter.toBufferedImage(matrix), "PNG", out);
+        return out.toByteArray();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(QRCodeEncoderBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,112 @@
+package com.asecapt.app.users.infrastructure.repository;
+
+import com.asecapt.app.users.application.dto.CertificateVerificationDto;
+import com.asecapt.app.users.domain.entities.Certificate;
+import com.asecapt.app.users.domain.entities.Enrollment;
+import com.asecapt.app.users.domain.entities.Person;
+import com.asecapt.app.users.domain.entities.Program;
+import com.asecapt.app.users.domain.entities.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The public verification projections must load everything they render with a single statement
+ */
+@DataJpaTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:certificates;MODE=MySQL;NON_KEYWORDS=USER,VALUE;DB_CLOSE_ON_EXIT=FALSE",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class CertificateRepositoryTest {
+
+    @Autowired
+    private CertificateRepository certificateRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        Person person = new Person();
+        person.setFirstName("Ana");
+        person.setLastName("Quispe");
+        person.setDocumentNumber("70123456");
+        person.setPhoneNumber("999888777");
+        person.setEmail("ana@example.com");
+
+        User user = new User();
+        user.setType(2);
+        user.setPerson(person);
+        entityManager.persist(user);
+
+        Program program = new Program();
+        program.setTitle("Seguridad y Salud en el Trabajo");
+        program.setName("SST");
+        program.setHours(120);
+        entityManager.persist(program);
+
+        for (int i = 1; i <= 2; i++) {
+            Enrollment enrollment = new Enrollment();
+            enrollment.setUserId(user.getId());
+            enrollment.setProgramId(program.getId());
+            enrollment.setEnrollmentDate(LocalDate.of(2024, i, 1));
+            enrollment.setStatus("completed");
+            entityManager.persist(enrollment);
+
+            Certificate certificate = new Certificate();
+            certificate.setCertificateCode("ASE-TEST-" + i);
+            certificate.setEnrollment(enrollment);
+            certificate.setFilePath("certificates/70123456/" + i + ".pdf");
+            certificate.setFileName(i + ".pdf");
+            certificate.setIssuedDate(LocalDateTime.of(2024, i, 15, 10, 0));
+            certificate.setCreatedAt(LocalDateTime.of(2024, i, 15, 10, 0));
+            entityManager.persist(certificate);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void findVerificationByCertificateCodeExecutesOneStatement() {
+        Optional<CertificateVerificationDto> verification = certificateRepository.findVerificationByCertificateCode("ASE-TEST-1");
+
+        assertThat(verification).isPresent();
+        assertThat(verification.get().getDocumentNumber()).isEqualTo("70123456");
+        assertThat(verification.get().getProgramTitle()).isEqualTo("Seguridad y Salud en el Trabajo");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void findVerificationsByStudentDocumentNumberExecutesOneStatement() {
+        List<CertificateVerificationDto> verifications = certificateRepository.findVerificationsByStudentDocumentNumber("70123456");
+
+        assertThat(verifications).extracting(CertificateVerificationDto::getCertificateCode)
+            .containsExactly("ASE-TEST-2", "ASE-TEST-1");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,88 @@
+package com.asecapt.app.users.infrastructure.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClientRateLimiterTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void allowsTheBurstThenAsksToWaitAboutOneInterval() {
+        ClientRateLimiter limiter = new ClientRateLimiter(meterRegistry, 60, 3, 100);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.tryAcquire("10.0.0.1")).isEqualTo(Duration.ZERO);
+        }
+        Duration wait = limiter.tryAcquire("10.0.0.1");
+
+        assertThat(wait).isPositive().isLessThanOrEqualTo(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void rejectedRequestsDoNotConsumeTheBucket() {
+        ClientRateLimiter limiter = new ClientRateLimiter(meterRegistry, 60, 1, 100);
+
+        assertThat(limiter.tryAcquire("10.0.0.1")).isEqualTo(Duration.ZERO);
+        Duration first = limiter.tryAcquire("10.0.0.1");
+        Duration second = limiter.tryAcquire("10.0.0.1");
+
+        assertThat(second).isPositive().isLessThanOrEqualTo(first);
+    }
+
+    @Test
+    void keysHaveIndependentBuckets() {
+        ClientRateLimiter limiter = new ClientRateLimiter(meterRegistry, 60, 1, 100);
+
+        assertThat(limiter.tryAcquire("10.0.0.1")).isEqualTo(Duration.ZERO);
+        assertThat(limiter.tryAcquire("10.0.0.1")).isPositive();
+        assertThat(limiter.tryAcquire("10.0.0.2")).isEqualTo(Duration.ZERO);
+    }
+
+    @Test
+    void bucketRefillsAtTheConfiguredRate() throws InterruptedException {
+        ClientRateLimiter limiter = new ClientRateLimiter(meterRegistry, 6000, 1, 100);
+
+        assertThat(limiter.tryAcquire("10.0.0.1")).isEqualTo(Duration.ZERO);
+        Duration wait = limiter.tryAcquire("10.0.0.1");
+        assertThat(wait).isPositive().isLessThanOrEqualTo(Duration.ofMillis(10));
+
+        Thread.sleep(wait.toMillis() + 5);
+
+        assertThat(limiter.tryAcquire("10.0.0.1")).isEqualTo(Duration.ZERO);
+    }
+
+    @Test
+    void keysBeyondMaxKeysShareTheOverflowBucket() {
+        ClientRateLimiter limiter = new ClientRateLimiter(meterRegistry, 60, 1, 1);
+
+        assertThat(limiter.tryAcquire("10.0.0.1")).isEqualTo(Duration.ZERO);
+        assertThat(limiter.tryAcquire("10.0.0.2")).isEqualTo(Duration.ZERO);
+        assertThat(limiter.tryAcquire("10.0.0.3")).isPositive();
+        assertThat(trackedKeys()).isEqualTo(2);
+    }
+
+    @Test
+    void evictIdleDropsRefilledKeysOnly() throws InterruptedException {
+        ClientRateLimiter limiter = new ClientRateLimiter(meterRegistry, 6000, 1, 100);
+        limiter.tryAcquire("10.0.0.1");
+        Thread.sleep(20);
+        ClientRateLimiter slow = new ClientRateLimiter(new SimpleMeterRegistry(), 1, 1, 100);
+        slow.tryAcquire("10.0.0.2");
+
+        limiter.evictIdle();
+        slow.evictIdle();
+
+        assertThat(trackedKeys()).isZero();
+        assertThat(slow.tryAcquire("10.0.0.2")).isPositive();
+    }
+
+    private double trackedKeys() {
+        return meterRegistry.get("public.rate.limit.keys").gauge().value();
+    }
+}